@@ -0,0 +1,15 @@
+package com.sky.constant;
+
+/**
+ * 缓存名称常量
+ */
+public class CacheConstant {
+
+    public static final String DISH_BY_CATEGORY = "dishByCategory";
+    public static final String SETMEAL_BY_CATEGORY = "setmealByCategory";
+    // 分类缓存不是两级缓存，只借用两级缓存的失效广播通知各个实例重新加载
+    public static final String CATEGORY = "category";
+    // 员工姓名索引同样只借用失效广播，键为员工id
+    public static final String EMPLOYEE_NAME = "employeeName";
+
+}
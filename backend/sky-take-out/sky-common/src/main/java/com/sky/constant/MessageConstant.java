@@ -14,15 +14,31 @@ public class MessageConstant {
     public static final String CATEGORY_BE_RELATED_BY_SETMEAL = "当前分类关联了套餐,不能删除";
     public static final String CATEGORY_BE_RELATED_BY_DISH = "当前分类关联了菜品,不能删除";
     public static final String SHOPPING_CART_IS_NULL = "购物车数据为空，不能下单";
+    public static final String SHOPPING_CART_ITEM_NOT_FOUND = "商品不存在";
+    public static final String SHOPPING_CART_ITEM_NOT_ON_SALE = "商品已停售";
     public static final String ADDRESS_BOOK_IS_NULL = "用户地址为空，不能下单";
     public static final String LOGIN_FAILED = "登录失败";
+    public static final String LOGIN_TOO_FREQUENT = "登录失败次数过多，请稍后再试";
     public static final String UPLOAD_FAILED = "文件上传失败";
+    public static final String UPLOAD_BUSY = "上传任务过多，请稍后再试";
+    public static final String IMAGE_FORMAT_NOT_SUPPORTED = "不支持的图片格式";
+    public static final String IMAGE_TOO_LARGE = "图片尺寸过大";
     public static final String SETMEAL_ENABLE_FAILED = "套餐内包含未启售菜品，无法启售";
     public static final String PASSWORD_EDIT_FAILED = "密码修改失败";
+    public static final String DISH_NOT_FOUND = "菜品不存在";
+    public static final String SETMEAL_NOT_FOUND = "套餐不存在";
+    public static final String STATUS_INVALID = "状态值无效";
     public static final String DISH_ON_SALE = "起售中的菜品不能删除";
     public static final String SETMEAL_ON_SALE = "起售中的套餐不能删除";
     public static final String DISH_BE_RELATED_BY_SETMEAL = "当前菜品关联了套餐,不能删除";
     public static final String ORDER_STATUS_ERROR = "订单状态错误";
     public static final String ORDER_NOT_FOUND = "订单不存在";
+    public static final String ORDER_PAID = "该订单已支付";
+    public static final String ORDER_PAYMENT_TIMEOUT = "订单超时，自动取消";
+    public static final String ORDER_PAY_FAILED = "订单支付失败";
+    public static final String ORDER_REFUND_FAILED = "订单退款失败";
+    public static final String PACK_AMOUNT_INVALID = "打包费错误";
+    public static final String REQUEST_IN_PROGRESS = "请求正在处理中，请勿重复提交";
+    public static final String INVALID_CURSOR = "分页游标无效";
 
 }
@@ -0,0 +1,12 @@
+package com.sky.exception;
+
+/**
+ * 相同的请求正在处理中
+ */
+public class DuplicateRequestException extends BaseException {
+
+    public DuplicateRequestException(String msg) {
+        super(msg);
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.sky.exception;
+
+/**
+ * 分页游标无效
+ */
+public class InvalidCursorException extends BaseException {
+
+    public InvalidCursorException(String msg) {
+        super(msg);
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.sky.exception;
+
+/**
+ * 状态值无效
+ */
+public class InvalidStatusException extends BaseException {
+
+    public InvalidStatusException() {
+    }
+
+    public InvalidStatusException(String msg) {
+        super(msg);
+    }
+
+}
@@ -13,5 +13,9 @@ public class AliOssProperties {
     private String accessKeyId;
     private String accessKeySecret;
     private String bucketName;
+    private int maxConnections = 64; //OSSClient 的最大连接数
+    private long multipartThreshold = 16 * 1024 * 1024; //文件大小达到这个值时使用分片上传
+    private long partSize = 4 * 1024 * 1024; //分片大小，也是每个分片占用的缓冲区大小
+    private int partThreads = 4; //并行上传分片的线程数，单个文件同时在途的分片数也不超过它
 
 }
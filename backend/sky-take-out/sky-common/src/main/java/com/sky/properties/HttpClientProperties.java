@@ -0,0 +1,20 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.http-client")
+@Data
+public class HttpClientProperties {
+
+    private int maxTotal = 200; //连接池最大连接数
+    private int maxPerRoute = 50; //每个目标主机的最大连接数
+    private long keepAliveMillis = 30 * 1000; //服务端没有返回 Keep-Alive 时连接的保持时长，也是保持时长的上限
+    private long maxIdleMillis = 60 * 1000; //空闲超过这个时长的连接会被后台线程关闭
+    private int validateAfterInactivityMillis = 2000; //空闲超过这个时长的连接复用前先检查是否可用
+    private int asyncThreads = 20; //异步请求的最大并发数
+    private int asyncQueueCapacity = 200; //异步请求的排队上限，超过后直接失败
+
+}
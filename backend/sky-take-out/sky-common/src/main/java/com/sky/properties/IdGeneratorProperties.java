@@ -0,0 +1,15 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.id-generator")
+@Data
+public class IdGeneratorProperties {
+
+    private Long workerId; //机器id，0 ~ 1023，必须配置，部署多个实例时每个实例必须不同
+    private long epoch = 1672531200000L; //起始时间 2023-01-01 00:00:00 (UTC+8)，上线后不能修改
+
+}
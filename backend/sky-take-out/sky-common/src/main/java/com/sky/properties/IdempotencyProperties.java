@@ -0,0 +1,19 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.idempotency")
+@Data
+public class IdempotencyProperties {
+
+    private String headerName = "Idempotency-Key"; //客户端传递幂等键的请求头
+    private long resultTtlSeconds = 24 * 60 * 60; //处理结果保留的时长，期间相同的幂等键直接返回这个结果
+    private long paymentResultTtlSeconds = 60 * 60; //支付结果保留的时长，微信预支付交易单2小时后失效，不能超过2小时
+    private long pendingTtlSeconds = 30; //处理中标记的时长，实例在处理中途宕机时，超过这个时长后允许重试
+    private int localMaxSize = 10000; //本地缓存的最大条数
+    private boolean redisEnabled = true; //是否通过Redis在多个实例之间去重
+
+}
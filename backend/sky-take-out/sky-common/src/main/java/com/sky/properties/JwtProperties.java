@@ -23,4 +23,10 @@ public class JwtProperties {
     private long userTtl;
     private String userTokenName;
 
+    /**
+     * 管理端已校验令牌的本地缓存配置
+     */
+    private long tokenCacheTtl = 5 * 60 * 1000;
+    private int tokenCacheMaxSize = 10000;
+
 }
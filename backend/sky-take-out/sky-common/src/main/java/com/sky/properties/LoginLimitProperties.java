@@ -0,0 +1,20 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.login-limit")
+@Data
+public class LoginLimitProperties {
+
+    private boolean enabled = true; //是否开启登录失败限流
+    private long windowMillis = 5 * 60 * 1000; //统计失败次数的滑动窗口长度
+    private int buckets = 10; //滑动窗口切分的时间桶数量
+    private int stripes = 4096; //计数器分段数量
+    private int maxFailuresPerUsername = 5; //窗口内同一用户名允许的失败次数
+    private int maxFailuresPerIp = 50; //窗口内同一ip允许的失败次数
+    private String clientIpHeader; //反向代理传递真实ip的请求头，为空时使用连接的远端地址
+
+}
@@ -0,0 +1,19 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-expiry")
+@Data
+public class OrderExpiryProperties {
+
+    private long paymentTimeoutMinutes = 15; //下单后超过这个时长未支付的订单自动取消
+    private long deliveryCompleteMinutes = 60; //超过预计送达时间这么久仍在派送中的订单自动完成
+    private long tickMillis = 1000; //时间轮每格的时长，也是到期时间的精度
+    private int wheelSize = 60; //时间轮每层的格数
+    private int batchSize = 500; //一条 UPDATE 语句最多修改的订单数
+    private int recoveryPageSize = 1000; //启动时分页加载待处理订单的每页条数
+
+}
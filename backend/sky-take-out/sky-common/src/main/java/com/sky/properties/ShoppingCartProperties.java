@@ -0,0 +1,17 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.shopping-cart")
+@Data
+public class ShoppingCartProperties {
+
+    private String store = "redis"; //购物车存储方式，redis 或 memory(进程内存，用于开发测试)
+    private long ttlSeconds = 7 * 24 * 60 * 60; //购物车最后一次修改后保留的时长
+    private boolean writeBehindEnabled = false; //是否把修改过的购物车定期写回 MySQL，开启后购物车过期或丢失时从 MySQL 恢复
+    private long writeBehindIntervalMillis = 5000; //写回 MySQL 的间隔
+
+}
@@ -0,0 +1,26 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.storage")
+@Data
+public class StorageProperties {
+
+    private String type = "alioss"; //文件存储方式，alioss 或 local(本地目录，用于开发测试)
+    private String localDir = "upload"; //本地存储的目录
+    private String localUrlPrefix = "/files/"; //本地存储的文件访问路径前缀
+    private int uploadThreads = 8; //同时执行的上传任务数
+    private int uploadQueueCapacity = 64; //排队等待的上传任务上限，超过后直接拒绝
+    private int imageThreads = 4; //生成缩略图等图片尺寸的线程数
+    private int imageQueueCapacity = 64; //排队等待生成的图片尺寸上限，超过后直接拒绝
+    private int imageMaxDimension = 8000; //允许上传的图片最大宽度或高度，在解码前检查
+    private long imageMaxPixels = 16000000; //允许上传的图片最大像素数(宽*高)，在解码前检查，防止解压炸弹
+    private boolean imageCacheEnabled = false; //是否通过本地磁盘缓存代理图片访问，开启后用户端读取到的图片地址改写成代理地址，数据库中仍保存原始地址
+    private String imageCacheDir = "image-cache"; //图片缓存目录
+    private String imageCacheUrlPrefix = "/common/image/"; //图片代理的访问路径前缀
+    private long imageCacheMaxMappedBytes = 256 * 1024 * 1024; //缓存中保留的内存映射总大小上限，超过后按最近最少使用移出，映射在GC回收时解除
+
+}
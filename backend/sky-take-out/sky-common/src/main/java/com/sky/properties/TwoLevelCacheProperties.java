@@ -0,0 +1,22 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.cache")
+@Data
+public class TwoLevelCacheProperties {
+
+    private int localMaxSize = 1000; //每个缓存的本地(一级)缓存最多条数
+    private long localTtlSeconds = 300; //本地缓存的过期时间，收不到失效通知时最多读到这么久之前的数据
+    private long ttlSeconds = 3600; //缓存的新鲜期，过期后进入 stale 期
+    private long staleSeconds = 60; //stale 期内仍返回旧值，同时在后台重新加载
+    private double earlyRefreshBeta = 1.0; //提前刷新的系数，越大越早刷新，0 表示不提前刷新
+    private int refreshThreads = 2; //后台刷新的线程数
+    private int refreshQueueCapacity = 100; //后台刷新的队列长度，满了之后放弃本次刷新
+    private String redisKeyPrefix = "cache:"; //Redis 缓存键的前缀
+    private String evictChannel = "cache:evict"; //各实例之间广播缓存失效的 Redis 频道
+
+}
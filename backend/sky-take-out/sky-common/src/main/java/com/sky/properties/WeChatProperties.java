@@ -19,4 +19,6 @@ public class WeChatProperties {
     private String weChatPayCertFilePath; //平台证书
     private String notifyUrl; //支付成功的回调地址
     private String refundNotifyUrl; //退款成功的回调地址
+    private long keyCheckIntervalMillis = 60000; //检查私钥、平台证书文件是否变更的最小间隔
+    private int maxConnections = 50; //调用微信支付接口的最大连接数
 }
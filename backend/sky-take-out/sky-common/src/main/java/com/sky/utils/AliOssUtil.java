@@ -1,23 +1,68 @@
 package com.sky.utils;
 
+import com.aliyun.oss.ClientBuilderConfiguration;
 import com.aliyun.oss.ClientException;
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.OSSClientBuilder;
 import com.aliyun.oss.OSSException;
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.UploadPartRequest;
+import com.sky.constant.MessageConstant;
+import com.sky.exception.UploadFailedException;
+import com.sky.properties.AliOssProperties;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
-@Data
-@AllArgsConstructor
+/**
+ * 阿里云OSS工具类
+ * 所有上传共用一个长期存活的 OSSClient，应用关闭时调用 shutdown 释放。
+ * 上传直接读取传入的输入流，不会先把整个文件读到内存；大文件分片后并行上传，
+ * 单个文件同时在途的分片数不超过 partThreads，内存占用有上限。
+ * 上传失败抛出 UploadFailedException，不会返回一个无效的地址。
+ */
+@Getter
 @Slf4j
 public class AliOssUtil {
 
-    private String endpoint;
-    private String accessKeyId;
-    private String accessKeySecret;
-    private String bucketName;
+    private final String endpoint;
+    private final String accessKeyId;
+    private final String accessKeySecret;
+    private final String bucketName;
+    private final int maxConnections;
+    private final long multipartThreshold;
+    private final long partSize;
+    private final int partThreads;
+
+    private volatile OSS ossClient;
+    private volatile ExecutorService partExecutor;
+
+    public AliOssUtil(AliOssProperties properties) {
+        this.endpoint = properties.getEndpoint();
+        this.accessKeyId = properties.getAccessKeyId();
+        this.accessKeySecret = properties.getAccessKeySecret();
+        this.bucketName = properties.getBucketName();
+        this.maxConnections = properties.getMaxConnections();
+        this.multipartThreshold = properties.getMultipartThreshold();
+        this.partSize = properties.getPartSize();
+        this.partThreads = properties.getPartThreads();
+    }
 
     /**
      * 文件上传
@@ -27,31 +72,80 @@ public class AliOssUtil {
      * @return
      */
     public String upload(byte[] bytes, String objectName) {
+        return upload(new ByteArrayInputStream(bytes), bytes.length, objectName);
+    }
+
+    /**
+     * 文件上传，边读边传，不会把整个文件读到内存
+     *
+     * @param inputStream 文件内容，由调用方关闭
+     * @param size        文件大小
+     * @param objectName
+     * @return
+     */
+    public String upload(InputStream inputStream, long size, String objectName) {
+        try {
+            if (size >= multipartThreshold) {
+                multipartUpload(inputStream, objectName);
+            } else {
+                // 指定长度后SDK直接按流发送，不需要先缓存内容来计算长度
+                ObjectMetadata metadata = new ObjectMetadata();
+                metadata.setContentLength(size);
+                getClient().putObject(bucketName, objectName, inputStream, metadata);
+            }
+        } catch (OSSException oe) {
+            log.error("OSS拒绝了上传请求, objectName: {}, errorCode: {}, errorMessage: {}, requestId: {}, hostId: {}",
+                    objectName, oe.getErrorCode(), oe.getErrorMessage(), oe.getRequestId(), oe.getHostId());
+            throw new UploadFailedException(MessageConstant.UPLOAD_FAILED);
+        } catch (ClientException ce) {
+            log.error("OSS客户端上传失败, objectName: {}", objectName, ce);
+            throw new UploadFailedException(MessageConstant.UPLOAD_FAILED);
+        } catch (IOException e) {
+            log.error("读取上传文件失败, objectName: {}", objectName, e);
+            throw new UploadFailedException(MessageConstant.UPLOAD_FAILED);
+        }
 
-        // 创建OSSClient实例。
-        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
+        String url = getUrl(objectName);
+        log.info("文件上传到:{}", url);
+        return url;
+    }
 
+    /**
+     * 文件是否已经存在，查询失败时抛出 UploadFailedException
+     *
+     * @param objectName
+     * @return
+     */
+    public boolean exists(String objectName) {
         try {
-            // 创建PutObject请求。
-            ossClient.putObject(bucketName, objectName, new ByteArrayInputStream(bytes));
+            return getClient().doesObjectExist(bucketName, objectName);
         } catch (OSSException oe) {
-            System.out.println("Caught an OSSException, which means your request made it to OSS, "
-                    + "but was rejected with an error response for some reason.");
-            System.out.println("Error Message:" + oe.getErrorMessage());
-            System.out.println("Error Code:" + oe.getErrorCode());
-            System.out.println("Request ID:" + oe.getRequestId());
-            System.out.println("Host ID:" + oe.getHostId());
+            log.error("OSS查询文件失败, objectName: {}, errorCode: {}, errorMessage: {}, requestId: {}",
+                    objectName, oe.getErrorCode(), oe.getErrorMessage(), oe.getRequestId());
+            throw new UploadFailedException(MessageConstant.UPLOAD_FAILED);
         } catch (ClientException ce) {
-            System.out.println("Caught an ClientException, which means the client encountered "
-                    + "a serious internal problem while trying to communicate with OSS, "
-                    + "such as not being able to access the network.");
-            System.out.println("Error Message:" + ce.getMessage());
-        } finally {
-            if (ossClient != null) {
-                ossClient.shutdown();
-            }
+            log.error("OSS客户端查询文件失败, objectName: {}", objectName, ce);
+            throw new UploadFailedException(MessageConstant.UPLOAD_FAILED);
         }
+    }
+
+    /**
+     * 下载文件，返回的输入流由调用方关闭
+     *
+     * @param objectName
+     * @return
+     */
+    public InputStream download(String objectName) {
+        return getClient().getObject(bucketName, objectName).getObjectContent();
+    }
 
+    /**
+     * 文件访问路径
+     *
+     * @param objectName
+     * @return
+     */
+    public String getUrl(String objectName) {
         //文件访问路径规则 https://BucketName.Endpoint/ObjectName
         StringBuilder stringBuilder = new StringBuilder("https://");
         stringBuilder
@@ -60,9 +154,154 @@ public class AliOssUtil {
                 .append(endpoint)
                 .append("/")
                 .append(objectName);
+        return stringBuilder.toString();
+    }
 
-        log.info("文件上传到:{}", stringBuilder.toString());
+    /**
+     * 释放OSSClient和分片上传线程
+     */
+    public synchronized void shutdown() {
+        if (ossClient != null) {
+            ossClient.shutdown();
+            ossClient = null;
+        }
+        if (partExecutor != null) {
+            partExecutor.shutdown();
+            partExecutor = null;
+        }
+    }
 
-        return stringBuilder.toString();
+    /**
+     * 分片上传：当前线程顺序读取分片，交给分片线程并行上传，任一分片失败则取消整个上传
+     *
+     * @param inputStream
+     * @param objectName
+     */
+    private void multipartUpload(InputStream inputStream, String objectName) throws IOException {
+        OSS client = getClient();
+        String uploadId = client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, objectName)).getUploadId();
+
+        // 每个在途的分片占用一个许可，读取下一个分片前先拿到许可，缓冲区最多 partThreads 个
+        Semaphore inFlight = new Semaphore(partThreads);
+        List<Future<PartETag>> futures = new ArrayList<>();
+        try {
+            int partNumber = 1;
+            while (true) {
+                inFlight.acquire();
+                byte[] buffer = new byte[(int) partSize];
+                int length = readFully(inputStream, buffer);
+                if (length == 0 && partNumber > 1) {
+                    inFlight.release();
+                    break;
+                }
+
+                UploadPartRequest request = new UploadPartRequest();
+                request.setBucketName(bucketName);
+                request.setKey(objectName);
+                request.setUploadId(uploadId);
+                request.setPartNumber(partNumber++);
+                request.setInputStream(new ByteArrayInputStream(buffer, 0, length));
+                request.setPartSize(length);
+                futures.add(getPartExecutor().submit(() -> {
+                    try {
+                        return client.uploadPart(request).getPartETag();
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+
+                if (length < buffer.length) {
+                    break;
+                }
+            }
+
+            List<PartETag> partETags = new ArrayList<>(futures.size());
+            for (Future<PartETag> future : futures) {
+                partETags.add(future.get());
+            }
+            partETags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+            client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, objectName, uploadId, partETags));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(client, objectName, uploadId, futures);
+            throw new ClientException("分片上传被中断", e);
+        } catch (ExecutionException e) {
+            abort(client, objectName, uploadId, futures);
+            Throwable cause = e.getCause();
+            if (cause instanceof OSSException) {
+                throw (OSSException) cause;
+            }
+            throw new ClientException("分片上传失败", cause);
+        } catch (IOException | RuntimeException e) {
+            abort(client, objectName, uploadId, futures);
+            throw e;
+        }
+    }
+
+    /**
+     * 取消还没完成的分片，并删除已上传的分片
+     */
+    private void abort(OSS client, String objectName, String uploadId, List<Future<PartETag>> futures) {
+        for (Future<PartETag> future : futures) {
+            future.cancel(true);
+        }
+        try {
+            client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, objectName, uploadId));
+        } catch (OSSException | ClientException e) {
+            log.warn("取消分片上传失败, objectName: {}, uploadId: {}", objectName, uploadId, e);
+        }
+    }
+
+    /**
+     * 读满缓冲区，除非流已经结束
+     *
+     * @return 实际读到的字节数
+     */
+    private static int readFully(InputStream inputStream, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int n = inputStream.read(buffer, total, buffer.length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    private OSS getClient() {
+        OSS client = ossClient;
+        if (client == null) {
+            synchronized (this) {
+                client = ossClient;
+                if (client == null) {
+                    ClientBuilderConfiguration configuration = new ClientBuilderConfiguration();
+                    configuration.setMaxConnections(maxConnections);
+                    // 创建OSSClient实例，之后所有上传共用
+                    client = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret, configuration);
+                    ossClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private ExecutorService getPartExecutor() {
+        ExecutorService executor = partExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = partExecutor;
+                if (executor == null) {
+                    AtomicInteger counter = new AtomicInteger();
+                    executor = Executors.newFixedThreadPool(partThreads, runnable -> {
+                        Thread thread = new Thread(runnable, "oss-part-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    partExecutor = executor;
+                }
+            }
+        }
+        return executor;
     }
 }
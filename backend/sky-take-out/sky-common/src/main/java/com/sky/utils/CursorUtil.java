@@ -0,0 +1,57 @@
+package com.sky.utils;
+
+import com.sky.constant.MessageConstant;
+import com.sky.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 分页游标工具类
+ * 把排序字段的值编码成对前端不透明的字符串，前端原样传回即可查询下一页
+ */
+public class CursorUtil {
+
+    private static final String SEPARATOR = ",";
+
+    /**
+     * 编码游标
+     * @param values 排序字段的值，按排序顺序传入
+     * @return
+     */
+    public static String encode(long... values) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                stringBuilder.append(SEPARATOR);
+            }
+            stringBuilder.append(values[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(stringBuilder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标
+     * @param cursor
+     * @param size 排序字段的个数
+     * @return
+     */
+    public static long[] decode(String cursor, int size) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR);
+            if (parts.length != size) {
+                throw new InvalidCursorException(MessageConstant.INVALID_CURSOR);
+            }
+            long[] values = new long[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = Long.parseLong(parts[i]);
+            }
+            return values;
+        } catch (IllegalArgumentException e) {
+            // Base64 格式错误和数字格式错误都属于非法游标
+            throw new InvalidCursorException(MessageConstant.INVALID_CURSOR);
+        }
+    }
+}
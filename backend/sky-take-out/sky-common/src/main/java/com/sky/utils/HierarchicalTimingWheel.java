@@ -0,0 +1,303 @@
+package com.sky.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮
+ * 第一层每格 tickMillis，共 wheelSize 格；放不下的任务交给上一层(每格是下一层一整圈)，层数按需增加。
+ * 只有非空的格子进入 DelayQueue，后台线程按格子的到期时间唤醒，所以空转成本和任务数无关；
+ * 高层格子到期时把任务重新放入低层，直到落在第一层到期。
+ * 添加任务是 O(1)；同一格内到期的任务会一起交给回调，方便批量处理。
+ * 取消只做标记，任务所在的格子到期时丢弃，不需要查找。
+ *
+ * @param <T>
+ */
+@Slf4j
+public class HierarchicalTimingWheel<T> {
+
+    private final Consumer<List<T>> expiryHandler;
+    private final DelayQueue<Bucket<T>> delayQueue = new DelayQueue<>();
+    // 添加时已经到期的任务，由后台线程在下一轮处理，不在调用方线程里执行回调
+    private final Queue<Timeout<T>> expiredOnAdd = new ConcurrentLinkedQueue<>();
+    // 添加任务持有读锁，推进时间持有写锁，时间轮结构只在写锁下变化
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Wheel<T> wheel;
+    private final long tickMillis;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * @param tickMillis    第一层每格的时长(毫秒)，也是到期时间的精度
+     * @param wheelSize     每层的格数
+     * @param threadName    后台线程名
+     * @param expiryHandler 到期回调，在后台线程中执行，参数是同一批到期的任务
+     */
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, String threadName, Consumer<List<T>> expiryHandler) {
+        this.tickMillis = tickMillis;
+        this.expiryHandler = expiryHandler;
+        this.wheel = new Wheel<>(tickMillis, wheelSize, System.currentTimeMillis(), delayQueue);
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 添加定时任务
+     *
+     * @param item     任务
+     * @param expireAt 到期时刻(毫秒时间戳)，已经过去的时刻会尽快到期
+     * @return 用于取消的句柄
+     */
+    public Timeout<T> schedule(T item, long expireAt) {
+        Timeout<T> timeout = new Timeout<>(item, expireAt, tickMillis, this);
+        size.incrementAndGet();
+        lock.readLock().lock();
+        try {
+            if (!wheel.add(timeout)) {
+                expiredOnAdd.offer(timeout);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return timeout;
+    }
+
+    /**
+     * 未到期且未取消的任务数
+     *
+     * @return
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * 停止后台线程，未到期的任务被丢弃
+     */
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                List<T> expired = new ArrayList<>();
+                Bucket<T> bucket = delayQueue.poll(tickMillis, TimeUnit.MILLISECONDS);
+                if (bucket != null) {
+                    lock.writeLock().lock();
+                    try {
+                        while (bucket != null) {
+                            wheel.advanceClock(bucket.getExpiration());
+                            // 高层格子的任务重新放入低层，第一层的任务到期
+                            for (Timeout<T> timeout : bucket.flush()) {
+                                if (!wheel.add(timeout)) {
+                                    collect(timeout, expired);
+                                }
+                            }
+                            bucket = delayQueue.poll();
+                        }
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+
+                Timeout<T> timeout;
+                while ((timeout = expiredOnAdd.poll()) != null) {
+                    collect(timeout, expired);
+                }
+
+                if (!expired.isEmpty()) {
+                    try {
+                        expiryHandler.accept(expired);
+                    } catch (Exception e) {
+                        log.error("时间轮到期回调执行失败, 任务数: {}", expired.size(), e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void collect(Timeout<T> timeout, List<T> expired) {
+        if (timeout.expire()) {
+            size.decrementAndGet();
+            expired.add(timeout.item);
+        }
+    }
+
+    /**
+     * 定时任务句柄
+     *
+     * @param <T>
+     */
+    public static final class Timeout<T> {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final T item;
+        private final long expireAt;
+        // 向上取整到下一格再放入时间轮：格子在起始时刻到期，不取整的话任务最多会提前一格到期
+        private final long deadline;
+        private final HierarchicalTimingWheel<T> owner;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private Timeout(T item, long expireAt, long tickMillis, HierarchicalTimingWheel<T> owner) {
+            this.item = item;
+            this.expireAt = expireAt;
+            this.deadline = expireAt + tickMillis - 1;
+            this.owner = owner;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public long getExpireAt() {
+            return expireAt;
+        }
+
+        /**
+         * 取消任务
+         *
+         * @return 任务还没有到期、取消成功时返回 true
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                owner.size.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean expire() {
+            return state.compareAndSet(PENDING, EXPIRED);
+        }
+
+        private boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+    }
+
+    /**
+     * 一层时间轮
+     */
+    private static final class Wheel<T> {
+        private final long tickMillis;
+        private final int wheelSize;
+        private final long interval;
+        private final Bucket<T>[] buckets;
+        private final DelayQueue<Bucket<T>> delayQueue;
+        // 当前时间，取整到 tickMillis，只在写锁下修改
+        private volatile long currentTime;
+        private volatile Wheel<T> overflowWheel;
+
+        @SuppressWarnings("unchecked")
+        private Wheel(long tickMillis, int wheelSize, long startMillis, DelayQueue<Bucket<T>> delayQueue) {
+            this.tickMillis = tickMillis;
+            this.wheelSize = wheelSize;
+            this.interval = tickMillis * wheelSize;
+            this.delayQueue = delayQueue;
+            this.currentTime = startMillis - (startMillis % tickMillis);
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket<>();
+            }
+        }
+
+        /**
+         * @return 已经到期或被取消时返回 false
+         */
+        private boolean add(Timeout<T> timeout) {
+            long deadline = timeout.deadline;
+            if (timeout.isCancelled() || deadline < currentTime + tickMillis) {
+                return false;
+            }
+            if (deadline < currentTime + interval) {
+                long virtualId = deadline / tickMillis;
+                Bucket<T> bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(timeout);
+                // 格子第一次使用或进入了新的一圈，重新放入延迟队列
+                if (bucket.setExpiration(virtualId * tickMillis)) {
+                    delayQueue.offer(bucket);
+                }
+                return true;
+            }
+            return getOverflowWheel().add(timeout);
+        }
+
+        private void advanceClock(long timeMillis) {
+            if (timeMillis >= currentTime + tickMillis) {
+                currentTime = timeMillis - (timeMillis % tickMillis);
+                Wheel<T> overflow = overflowWheel;
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+
+        private Wheel<T> getOverflowWheel() {
+            if (overflowWheel == null) {
+                synchronized (this) {
+                    if (overflowWheel == null) {
+                        overflowWheel = new Wheel<>(interval, wheelSize, currentTime, delayQueue);
+                    }
+                }
+            }
+            return overflowWheel;
+        }
+    }
+
+    /**
+     * 时间轮的一格
+     */
+    private static final class Bucket<T> implements Delayed {
+        private final AtomicLong expiration = new AtomicLong(-1);
+        private List<Timeout<T>> timeouts = new ArrayList<>();
+
+        private synchronized void add(Timeout<T> timeout) {
+            timeouts.add(timeout);
+        }
+
+        private synchronized List<Timeout<T>> flush() {
+            List<Timeout<T>> flushed = timeouts;
+            timeouts = new ArrayList<>();
+            expiration.set(-1);
+            return flushed;
+        }
+
+        private boolean setExpiration(long expirationMillis) {
+            return expiration.getAndSet(expirationMillis) != expirationMillis;
+        }
+
+        private long getExpiration() {
+            return expiration.get();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(getExpiration() - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getExpiration(), ((Bucket<?>) other).getExpiration());
+        }
+    }
+}
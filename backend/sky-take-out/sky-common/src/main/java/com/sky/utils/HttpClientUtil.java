@@ -1,17 +1,29 @@
 package com.sky.utils;
 
 import com.alibaba.fastjson.JSONObject;
+import com.sky.properties.HttpClientProperties;
+import org.apache.http.HttpClientConnection;
 import org.apache.http.NameValuePair;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
@@ -19,14 +31,100 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Http工具类
+ * 所有请求共用一个带连接池的 HttpClient，复用 TCP/TLS 连接。
+ * 连接池参数默认使用 HttpClientProperties 中的默认值，Spring 启动后会按配置重新初始化。
+ * 以 Async 结尾的方法在有界的线程池中执行请求，立即返回 CompletableFuture，不占用调用方(例如 Tomcat 工作线程)的线程。
  */
 public class HttpClientUtil {
 
     static final  int TIMEOUT_MSEC = 5 * 1000;
 
+    // 连接池统计：租用连接的尝试次数、成功次数、等待超时次数、累计和最大等待时间
+    private static final LongAdder LEASE_ATTEMPT_COUNT = new LongAdder();
+    private static final LongAdder LEASE_COUNT = new LongAdder();
+    private static final LongAdder LEASE_TIMEOUT_COUNT = new LongAdder();
+    private static final LongAdder LEASE_WAIT_NANOS = new LongAdder();
+    private static final AtomicLong MAX_LEASE_WAIT_NANOS = new AtomicLong();
+
+    private static volatile PoolingHttpClientConnectionManager connectionManager;
+    private static volatile CloseableHttpClient httpClient;
+
+    // 执行异步请求的有界线程池，以及到达超时时间后中止请求的定时器
+    private static volatile ThreadPoolExecutor asyncExecutor;
+    private static final ScheduledExecutorService TIMEOUT_SCHEDULER = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("http-timeout"));
+
+    /**
+     * 按配置初始化连接池，已经初始化过的旧连接池会被关闭
+     * @param properties
+     */
+    public static synchronized void init(HttpClientProperties properties) {
+        CloseableHttpClient old = httpClient;
+
+        PoolingHttpClientConnectionManager manager = new MeteredConnectionManager();
+        manager.setMaxTotal(properties.getMaxTotal());
+        manager.setDefaultMaxPerRoute(properties.getMaxPerRoute());
+        manager.setValidateAfterInactivity(properties.getValidateAfterInactivityMillis());
+
+        long keepAliveMillis = properties.getKeepAliveMillis();
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            // 优先使用服务端 Keep-Alive 响应头中的时长，但不超过配置的上限
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? Math.min(duration, keepAliveMillis) : keepAliveMillis;
+        };
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(manager)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .setDefaultRequestConfig(builderRequestConfig())
+                // 后台线程定期关闭过期和长时间空闲的连接
+                .evictExpiredConnections()
+                .evictIdleConnections(properties.getMaxIdleMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        connectionManager = manager;
+
+        ThreadPoolExecutor oldExecutor = asyncExecutor;
+        // 队列满时直接拒绝，由调用方拿到失败的 future，而不是无限排队
+        asyncExecutor = new ThreadPoolExecutor(properties.getAsyncThreads(), properties.getAsyncThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(properties.getAsyncQueueCapacity()),
+                daemonThreadFactory("http-async"), new ThreadPoolExecutor.AbortPolicy());
+        asyncExecutor.allowCoreThreadTimeOut(true);
+
+        closeQuietly(old);
+        if (oldExecutor != null) {
+            oldExecutor.shutdown();
+        }
+    }
+
+    /**
+     * 关闭连接池
+     */
+    public static synchronized void shutdown() {
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
+            asyncExecutor = null;
+        }
+        closeQuietly(httpClient);
+        httpClient = null;
+        connectionManager = null;
+    }
+
     /**
      * 发送GET方式请求
      * @param url
@@ -34,45 +132,36 @@ public class HttpClientUtil {
      * @return
      */
     public static String doGet(String url,Map<String,String> paramMap){
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-
         String result = "";
-        CloseableHttpResponse response = null;
 
         try{
-            URIBuilder builder = new URIBuilder(url);
-            if(paramMap != null){
-                for (String key : paramMap.keySet()) {
-                    builder.addParameter(key,paramMap.get(key));
-                }
-            }
-            URI uri = builder.build();
-
-            //创建GET请求
-            HttpGet httpGet = new HttpGet(uri);
-
-            //发送请求
-            response = httpClient.execute(httpGet);
-
-            //判断响应状态
-            if(response.getStatusLine().getStatusCode() == 200){
-                result = EntityUtils.toString(response.getEntity(),"UTF-8");
-            }
+            result = executeGet(buildGet(url, paramMap));
         }catch (Exception e){
             e.printStackTrace();
-        }finally {
-            try {
-                response.close();
-                httpClient.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
 
         return result;
     }
 
+    /**
+     * 异步发送GET方式请求
+     * 与 doGet 不同，请求失败或响应状态不是200时 future 以异常结束，而不是返回空字符串
+     * @param url
+     * @param paramMap
+     * @param timeoutMillis 本次请求的超时时间，包括等待连接、建立连接和读取响应
+     * @return
+     */
+    public static CompletableFuture<String> doGetAsync(String url, Map<String, String> paramMap, int timeoutMillis) {
+        HttpGet httpGet;
+        try {
+            httpGet = buildGet(url, paramMap);
+        } catch (Exception e) {
+            return failed(e);
+        }
+        httpGet.setConfig(builderRequestConfig(timeoutMillis));
+        return submit(httpGet, timeoutMillis, () -> executeOrThrow(httpGet));
+    }
+
     /**
      * 发送POST方式请求
      * @param url
@@ -81,43 +170,24 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        CloseableHttpResponse response = null;
-        String resultString = "";
+        // 创建Http Post请求
+        HttpPost httpPost = new HttpPost(url);
 
-        try {
-            // 创建Http Post请求
-            HttpPost httpPost = new HttpPost(url);
-
-            // 创建参数列表
-            if (paramMap != null) {
-                List<NameValuePair> paramList = new ArrayList();
-                for (Map.Entry<String, String> param : paramMap.entrySet()) {
-                    paramList.add(new BasicNameValuePair(param.getKey(), param.getValue()));
-                }
-                // 模拟表单
-                UrlEncodedFormEntity entity = new UrlEncodedFormEntity(paramList);
-                httpPost.setEntity(entity);
-            }
-
-            httpPost.setConfig(builderRequestConfig());
-
-            // 执行http请求
-            response = httpClient.execute(httpPost);
-
-            resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
-        } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+        // 创建参数列表
+        if (paramMap != null) {
+            List<NameValuePair> paramList = new ArrayList();
+            for (Map.Entry<String, String> param : paramMap.entrySet()) {
+                paramList.add(new BasicNameValuePair(param.getKey(), param.getValue()));
             }
+            // 模拟表单
+            UrlEncodedFormEntity entity = new UrlEncodedFormEntity(paramList);
+            httpPost.setEntity(entity);
         }
 
-        return resultString;
+        httpPost.setConfig(builderRequestConfig());
+
+        // 执行http请求
+        return executePost(httpPost);
     }
 
     /**
@@ -128,52 +198,256 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost4Json(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        CloseableHttpResponse response = null;
-        String resultString = "";
+        HttpPost httpPost = buildPost4Json(url, paramMap);
+
+        httpPost.setConfig(builderRequestConfig());
+
+        // 执行http请求
+        return executePost(httpPost);
+    }
+
+    /**
+     * 异步发送POST方式请求，请求体为json
+     * 与 doGetAsync 相同，请求失败或响应状态不是200时 future 以异常结束
+     * @param url
+     * @param paramMap
+     * @param timeoutMillis 本次请求的超时时间，包括等待连接、建立连接和读取响应
+     * @return
+     */
+    public static CompletableFuture<String> doPost4JsonAsync(String url, Map<String, String> paramMap, int timeoutMillis) {
+        HttpPost httpPost = buildPost4Json(url, paramMap);
+        httpPost.setConfig(builderRequestConfig(timeoutMillis));
+        return submit(httpPost, timeoutMillis, () -> executeOrThrow(httpPost));
+    }
+
+    /**
+     * 连接池当前状态：租用中、等待中、空闲的连接数和最大连接数
+     * @return
+     */
+    public static PoolStats getPoolStats() {
+        getClient();
+        PoolingHttpClientConnectionManager manager = connectionManager;
+        return manager == null ? new PoolStats(0, 0, 0, 0) : manager.getTotalStats();
+    }
+
+    /**
+     * 租用连接的总次数，包括成功、等待超时和被中断的
+     * @return
+     */
+    public static long getLeaseAttemptCount() {
+        return LEASE_ATTEMPT_COUNT.sum();
+    }
 
+    public static long getLeaseCount() {
+        return LEASE_COUNT.sum();
+    }
+
+    public static long getLeaseTimeoutCount() {
+        return LEASE_TIMEOUT_COUNT.sum();
+    }
+
+    public static long getTotalLeaseWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(LEASE_WAIT_NANOS.sum());
+    }
+
+    public static long getMaxLeaseWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(MAX_LEASE_WAIT_NANOS.get());
+    }
+
+    private static HttpGet buildGet(String url, Map<String, String> paramMap) throws Exception {
+        URIBuilder builder = new URIBuilder(url);
+        if(paramMap != null){
+            for (String key : paramMap.keySet()) {
+                builder.addParameter(key,paramMap.get(key));
+            }
+        }
+        URI uri = builder.build();
+
+        //创建GET请求
+        return new HttpGet(uri);
+    }
+
+    private static HttpPost buildPost4Json(String url, Map<String, String> paramMap) {
+        // 创建Http Post请求
+        HttpPost httpPost = new HttpPost(url);
+
+        if (paramMap != null) {
+            //构造json格式数据
+            JSONObject jsonObject = new JSONObject();
+            for (Map.Entry<String, String> param : paramMap.entrySet()) {
+                jsonObject.put(param.getKey(),param.getValue());
+            }
+            StringEntity entity = new StringEntity(jsonObject.toString(),"utf-8");
+            //设置请求编码
+            entity.setContentEncoding("utf-8");
+            //设置数据类型
+            entity.setContentType("application/json");
+            httpPost.setEntity(entity);
+        }
+        return httpPost;
+    }
+
+    /**
+     * 发送GET请求，只有响应状态为200时才返回响应体，否则返回空字符串
+     */
+    private static String executeGet(HttpGet httpGet) throws IOException {
+        //发送请求
+        try (CloseableHttpResponse response = getClient().execute(httpGet)) {
+            //判断响应状态
+            if(response.getStatusLine().getStatusCode() == 200){
+                return EntityUtils.toString(response.getEntity(),"UTF-8");
+            }
+            // 读完响应体，连接才能放回连接池
+            EntityUtils.consume(response.getEntity());
+            return "";
+        }
+    }
+
+    /**
+     * 发送请求，响应状态不是200时抛出 HttpResponseException，异步请求都使用这个方法
+     */
+    private static String executeOrThrow(HttpRequestBase request) throws IOException {
+        try (CloseableHttpResponse response = getClient().execute(request)) {
+            StatusLine statusLine = response.getStatusLine();
+            if (statusLine.getStatusCode() == 200) {
+                return EntityUtils.toString(response.getEntity(), "UTF-8");
+            }
+            EntityUtils.consume(response.getEntity());
+            throw new HttpResponseException(statusLine.getStatusCode(), statusLine.getReasonPhrase());
+        }
+    }
+
+    private static String executePost(HttpPost httpPost) throws IOException {
+        try (CloseableHttpResponse response = getClient().execute(httpPost)) {
+            return EntityUtils.toString(response.getEntity(), "UTF-8");
+        }
+    }
+
+    /**
+     * 把请求提交到异步线程池执行，从提交时开始计时，超过 timeoutMillis 还没完成就中止请求
+     * 超时包括在线程池中排队的时间，排队期间就已超时的请求不会再执行
+     */
+    private static CompletableFuture<String> submit(HttpRequestBase request, int timeoutMillis, HttpCall call) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        getClient();
+        ScheduledFuture<?> timeout = TIMEOUT_SCHEDULER.schedule(() -> {
+            if (future.completeExceptionally(new TimeoutException("http请求超时: " + request.getURI()))) {
+                request.abort();
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
         try {
-            // 创建Http Post请求
-            HttpPost httpPost = new HttpPost(url);
-
-            if (paramMap != null) {
-                //构造json格式数据
-                JSONObject jsonObject = new JSONObject();
-                for (Map.Entry<String, String> param : paramMap.entrySet()) {
-                    jsonObject.put(param.getKey(),param.getValue());
+            asyncExecutor.execute(() -> {
+                if (future.isDone()) {
+                    return;
                 }
-                StringEntity entity = new StringEntity(jsonObject.toString(),"utf-8");
-                //设置请求编码
-                entity.setContentEncoding("utf-8");
-                //设置数据类型
-                entity.setContentType("application/json");
-                httpPost.setEntity(entity);
-            }
+                try {
+                    future.complete(call.execute());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    timeout.cancel(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 并发数和排队都已经达到上限
+            timeout.cancel(false);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
 
-            httpPost.setConfig(builderRequestConfig());
+    private static <T> CompletableFuture<T> failed(Exception e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
 
-            // 执行http请求
-            response = httpClient.execute(httpPost);
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 
-            resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
-        } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+    private static CloseableHttpClient getClient() {
+        CloseableHttpClient client = httpClient;
+        if (client == null) {
+            synchronized (HttpClientUtil.class) {
+                if (httpClient == null) {
+                    // 还没有按配置初始化(例如不在 Spring 环境中使用)，先用默认配置
+                    init(new HttpClientProperties());
+                }
+                client = httpClient;
             }
         }
+        return client;
+    }
 
-        return resultString;
+    private static void closeQuietly(CloseableHttpClient client) {
+        if (client == null) {
+            return;
+        }
+        try {
+            client.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
+
     private static RequestConfig builderRequestConfig() {
+        return builderRequestConfig(TIMEOUT_MSEC);
+    }
+
+    private static RequestConfig builderRequestConfig(int timeoutMillis) {
         return RequestConfig.custom()
-                .setConnectTimeout(TIMEOUT_MSEC)
-                .setConnectionRequestTimeout(TIMEOUT_MSEC)
-                .setSocketTimeout(TIMEOUT_MSEC).build();
+                .setConnectTimeout(timeoutMillis)
+                .setConnectionRequestTimeout(timeoutMillis)
+                .setSocketTimeout(timeoutMillis).build();
+    }
+
+    /**
+     * 可能抛出异常的http调用
+     */
+    @FunctionalInterface
+    private interface HttpCall {
+        String execute() throws Exception;
     }
 
+    /**
+     * 统计从连接池租用连接的次数和等待时间
+     */
+    private static class MeteredConnectionManager extends PoolingHttpClientConnectionManager {
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            ConnectionRequest request = super.requestConnection(route, state);
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit tunit)
+                        throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    long start = System.nanoTime();
+                    try {
+                        HttpClientConnection connection = request.get(timeout, tunit);
+                        LEASE_COUNT.increment();
+                        return connection;
+                    } catch (ConnectionPoolTimeoutException e) {
+                        LEASE_TIMEOUT_COUNT.increment();
+                        throw e;
+                    } finally {
+                        long waited = System.nanoTime() - start;
+                        LEASE_ATTEMPT_COUNT.increment();
+                        LEASE_WAIT_NANOS.add(waited);
+                        MAX_LEASE_WAIT_NANOS.accumulateAndGet(waited, Math::max);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package com.sky.utils;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * jwt令牌的签发和校验
+ * 与 JwtUtil 不同，秘钥只在创建时转换一次，解析器也只构造一次。
+ * 解析器构造完成后不再修改配置，可以在多个线程之间共享，通常每一端(管理端、用户端)创建一个实例。
+ */
+public class JwtCodec {
+
+    private static final SignatureAlgorithm SIGNATURE_ALGORITHM = SignatureAlgorithm.HS256;
+
+    private final SecretKey secretKey;
+    private final long ttlMillis;
+    private final JwtParser parser;
+
+    /**
+     * @param secretKey jwt秘钥
+     * @param ttlMillis jwt过期时间(毫秒)
+     */
+    public JwtCodec(String secretKey, long ttlMillis) {
+        this.secretKey = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), SIGNATURE_ALGORITHM.getJcaName());
+        this.ttlMillis = ttlMillis;
+        this.parser = Jwts.parser().setSigningKey(this.secretKey);
+    }
+
+    /**
+     * 生成jwt
+     *
+     * @param claims 设置的信息
+     * @return
+     */
+    public String sign(Map<String, Object> claims) {
+        Date exp = new Date(System.currentTimeMillis() + ttlMillis);
+        return Jwts.builder()
+                // 私有声明要先设置，否则会覆盖后面设置的标准声明
+                .setClaims(claims)
+                .signWith(SIGNATURE_ALGORITHM, secretKey)
+                .setExpiration(exp)
+                .compact();
+    }
+
+    /**
+     * 校验并解析jwt，签名不正确或者已过期会抛出异常
+     *
+     * @param token 加密后的token
+     * @return
+     */
+    public Claims verify(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+}
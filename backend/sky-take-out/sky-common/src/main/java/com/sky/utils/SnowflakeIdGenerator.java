@@ -0,0 +1,80 @@
+package com.sky.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法id生成器
+ * id 由 41位毫秒时间戳 + 10位机器id + 12位序列号 组成，同一台机器生成的id单调递增，
+ * 不同机器的id因机器id不同而不会重复，不需要访问数据库或其他节点。
+ * 时间戳和序列号合在一个 AtomicLong 里用CAS更新，生成id时不加锁。
+ * 同一毫秒内序列号用完时直接进位到下一毫秒(逻辑时间略超前于系统时间)，而不是等待；
+ * 系统时钟小幅回拨时继续沿用逻辑时间，不会生成重复id；
+ * 逻辑时间超前系统时间 MAX_DRIFT_MILLIS 以上(时钟大幅回拨)时直接抛出异常，不会阻塞调用线程。
+ */
+public class SnowflakeIdGenerator {
+
+    private static final int WORKER_ID_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    // 逻辑时间最多超前系统时间这么多毫秒，超过后拒绝生成
+    private static final long MAX_DRIFT_MILLIS = 1000;
+
+    private final long epoch;
+    private final long workerId;
+
+    // 高位是相对 epoch 的逻辑时间戳，低 SEQUENCE_BITS 位是该毫秒内的序列号
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * @param workerId 机器id，0 ~ 1023，每个实例必须不同
+     * @param epoch    起始时间(毫秒)，上线后不能修改
+     */
+    public SnowflakeIdGenerator(long workerId, long epoch) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId must be between 0 and " + MAX_WORKER_ID + ": " + workerId);
+        }
+        if (epoch > System.currentTimeMillis()) {
+            throw new IllegalArgumentException("epoch must not be in the future: " + epoch);
+        }
+        this.workerId = workerId;
+        this.epoch = epoch;
+    }
+
+    /**
+     * 生成下一个id
+     *
+     * @return
+     * @throws IllegalStateException 系统时钟回拨超过 MAX_DRIFT_MILLIS
+     */
+    public long nextId() {
+        while (true) {
+            long now = System.currentTimeMillis() - epoch;
+            long prev = state.get();
+            long prevTimestamp = prev >>> SEQUENCE_BITS;
+
+            long next;
+            if (now > prevTimestamp) {
+                // 进入新的毫秒，序列号从0开始
+                next = now << SEQUENCE_BITS;
+            } else if (prevTimestamp - now < MAX_DRIFT_MILLIS) {
+                // 同一毫秒或时钟回拨：序列号加一，用完时自然进位到下一毫秒
+                next = prev + 1;
+            } else {
+                // 时钟回拨太多，等待追上可能要很久，直接失败
+                throw new IllegalStateException("clock moved backwards by " + (prevTimestamp - now) + "ms, refusing to generate id");
+            }
+
+            if (state.compareAndSet(prev, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (WORKER_ID_BITS + SEQUENCE_BITS))
+                        | (workerId << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+}
@@ -5,6 +5,7 @@ import com.alibaba.fastjson.JSONObject;
 import com.sky.properties.WeChatProperties;
 import com.wechat.pay.contrib.apache.httpclient.WechatPayHttpClientBuilder;
 import com.wechat.pay.contrib.apache.httpclient.util.PemUtil;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.RandomStringUtils;
 import org.apache.http.HttpHeaders;
 import org.apache.http.client.methods.CloseableHttpResponse;
@@ -13,14 +14,19 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.Signature;
 import java.security.cert.X509Certificate;
@@ -33,6 +39,7 @@ import java.util.List;
  * 微信支付工具类
  */
 @Component
+@Slf4j
 public class WeChatPayUtil {
 
     //微信支付下单接口地址
@@ -44,31 +51,148 @@ public class WeChatPayUtil {
     @Autowired
     private WeChatProperties weChatProperties;
 
+    //当前使用的私钥、平台证书和客户端，文件变更后整体替换
+    private volatile Credentials credentials;
+
+    //上次检查私钥、平台证书文件是否变更的时间
+    private volatile long lastCheckTime;
+
+    //被替换下来的客户端，可能仍有请求在使用，下一次替换或应用关闭时再关闭
+    private CloseableHttpClient retiredClient;
+
+    //Signature 不是线程安全的，每个线程复用自己的实例
+    private final ThreadLocal<Signature> signatures = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance("SHA256withRSA");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /**
+     * 商户私钥、平台证书以及据此构造的客户端
+     */
+    private static final class Credentials {
+        private final PrivateKey privateKey;
+        private final CloseableHttpClient httpClient;
+        private final long keyLastModified;
+        private final long certLastModified;
+
+        private Credentials(PrivateKey privateKey, CloseableHttpClient httpClient, long keyLastModified, long certLastModified) {
+            this.privateKey = privateKey;
+            this.httpClient = httpClient;
+            this.keyLastModified = keyLastModified;
+            this.certLastModified = certLastModified;
+        }
+    }
+
     /**
-     * 获取调用微信接口的客户端工具对象
+     * 获取当前的私钥和客户端，首次调用时加载；之后最多每隔 keyCheckIntervalMillis 检查一次文件，
+     * 文件被修改过才重新加载
      *
      * @return
      */
-    private CloseableHttpClient getClient() {
-        PrivateKey merchantPrivateKey = null;
+    private Credentials getCredentials() throws IOException {
+        Credentials current = credentials;
+        if (current != null && System.currentTimeMillis() - lastCheckTime < weChatProperties.getKeyCheckIntervalMillis()) {
+            return current;
+        }
+        synchronized (this) {
+            current = credentials;
+            long now = System.currentTimeMillis();
+            if (current != null && now - lastCheckTime < weChatProperties.getKeyCheckIntervalMillis()) {
+                return current;
+            }
+            lastCheckTime = now;
+
+            File keyFile = new File(weChatProperties.getPrivateKeyFilePath());
+            File certFile = new File(weChatProperties.getWeChatPayCertFilePath());
+            if (current != null
+                    && keyFile.lastModified() == current.keyLastModified
+                    && certFile.lastModified() == current.certLastModified) {
+                return current;
+            }
+
+            Credentials loaded;
+            try {
+                loaded = load(keyFile, certFile);
+            } catch (IOException | RuntimeException e) {
+                if (current == null) {
+                    throw e;
+                }
+                //文件可能正在被替换，继续使用旧的，等下次检查
+                log.error("重新加载微信支付私钥或平台证书失败，继续使用原有配置", e);
+                return current;
+            }
+
+            credentials = loaded;
+            if (current != null) {
+                log.info("微信支付私钥或平台证书已变更，重新构造客户端");
+                closeQuietly(retiredClient);
+                retiredClient = current.httpClient;
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * 读取私钥和平台证书，构造带连接池的客户端
+     *
+     * @param keyFile
+     * @param certFile
+     * @return
+     */
+    private Credentials load(File keyFile, File certFile) throws IOException {
+        long keyLastModified = keyFile.lastModified();
+        long certLastModified = certFile.lastModified();
+
+        PrivateKey merchantPrivateKey;
+        X509Certificate x509Certificate;
+        //merchantPrivateKey商户API私钥，如何加载商户API私钥请看常见问题
+        try (InputStream in = new FileInputStream(keyFile)) {
+            merchantPrivateKey = PemUtil.loadPrivateKey(in);
+        }
+        //加载平台证书文件
+        try (InputStream in = new FileInputStream(certFile)) {
+            x509Certificate = PemUtil.loadCertificate(in);
+        }
+        //wechatPayCertificates微信支付平台证书列表。你也可以使用后面章节提到的“定时更新平台证书功能”，而不需要关心平台证书的来龙去脉
+        List<X509Certificate> wechatPayCertificates = Arrays.asList(x509Certificate);
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(weChatProperties.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(weChatProperties.getMaxConnections());
+
+        WechatPayHttpClientBuilder builder = WechatPayHttpClientBuilder.create()
+                .withMerchant(weChatProperties.getMchid(), weChatProperties.getMchSerialNo(), merchantPrivateKey)
+                .withWechatPay(wechatPayCertificates);
+        builder.setConnectionManager(connectionManager);
+
+        // 通过WechatPayHttpClientBuilder构造的HttpClient，会自动的处理签名和验签
+        return new Credentials(merchantPrivateKey, builder.build(), keyLastModified, certLastModified);
+    }
+
+    /**
+     * 应用关闭时释放客户端的连接
+     */
+    @PreDestroy
+    public synchronized void destroy() {
+        closeQuietly(retiredClient);
+        retiredClient = null;
+        if (credentials != null) {
+            closeQuietly(credentials.httpClient);
+            credentials = null;
+        }
+    }
+
+    private static void closeQuietly(CloseableHttpClient httpClient) {
+        if (httpClient == null) {
+            return;
+        }
         try {
-            //merchantPrivateKey商户API私钥，如何加载商户API私钥请看常见问题
-            merchantPrivateKey = PemUtil.loadPrivateKey(new FileInputStream(new File(weChatProperties.getPrivateKeyFilePath())));
-            //加载平台证书文件
-            X509Certificate x509Certificate = PemUtil.loadCertificate(new FileInputStream(new File(weChatProperties.getWeChatPayCertFilePath())));
-            //wechatPayCertificates微信支付平台证书列表。你也可以使用后面章节提到的“定时更新平台证书功能”，而不需要关心平台证书的来龙去脉
-            List<X509Certificate> wechatPayCertificates = Arrays.asList(x509Certificate);
-
-            WechatPayHttpClientBuilder builder = WechatPayHttpClientBuilder.create()
-                    .withMerchant(weChatProperties.getMchid(), weChatProperties.getMchSerialNo(), merchantPrivateKey)
-                    .withWechatPay(wechatPayCertificates);
-
-            // 通过WechatPayHttpClientBuilder构造的HttpClient，会自动的处理签名和验签
-            CloseableHttpClient httpClient = builder.build();
-            return httpClient;
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-            return null;
+            httpClient.close();
+        } catch (IOException e) {
+            log.warn("关闭微信支付客户端失败", e);
         }
     }
 
@@ -80,7 +204,7 @@ public class WeChatPayUtil {
      * @return
      */
     private String post(String url, String body) throws Exception {
-        CloseableHttpClient httpClient = getClient();
+        CloseableHttpClient httpClient = getCredentials().httpClient;
 
         HttpPost httpPost = new HttpPost(url);
         httpPost.addHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.toString());
@@ -88,13 +212,9 @@ public class WeChatPayUtil {
         httpPost.addHeader("Wechatpay-Serial", weChatProperties.getMchSerialNo());
         httpPost.setEntity(new StringEntity(body, "UTF-8"));
 
-        CloseableHttpResponse response = httpClient.execute(httpPost);
-        try {
-            String bodyAsString = EntityUtils.toString(response.getEntity());
-            return bodyAsString;
-        } finally {
-            httpClient.close();
-            response.close();
+        //客户端是共享的，只关闭响应，连接归还连接池
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            return EntityUtils.toString(response.getEntity(), "UTF-8");
         }
     }
 
@@ -105,20 +225,15 @@ public class WeChatPayUtil {
      * @return
      */
     private String get(String url) throws Exception {
-        CloseableHttpClient httpClient = getClient();
+        CloseableHttpClient httpClient = getCredentials().httpClient;
 
         HttpGet httpGet = new HttpGet(url);
         httpGet.addHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.toString());
         httpGet.addHeader(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_JSON.toString());
         httpGet.addHeader("Wechatpay-Serial", weChatProperties.getMchSerialNo());
 
-        CloseableHttpResponse response = httpClient.execute(httpGet);
-        try {
-            String bodyAsString = EntityUtils.toString(response.getEntity());
-            return bodyAsString;
-        } finally {
-            httpClient.close();
-            response.close();
+        try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
+            return EntityUtils.toString(response.getEntity(), "UTF-8");
         }
     }
 
@@ -168,7 +283,7 @@ public class WeChatPayUtil {
         String bodyAsString = jsapi(orderNum, total, description, openid);
         //解析返回结果
         JSONObject jsonObject = JSON.parseObject(bodyAsString);
-        System.out.println(jsonObject);
+        log.debug("微信支付下单返回: {}", jsonObject);
 
         String prepayId = jsonObject.getString("prepay_id");
         if (prepayId != null) {
@@ -187,8 +302,8 @@ public class WeChatPayUtil {
             String signMessage = stringBuilder.toString();
             byte[] message = signMessage.getBytes();
 
-            Signature signature = Signature.getInstance("SHA256withRSA");
-            signature.initSign(PemUtil.loadPrivateKey(new FileInputStream(new File(weChatProperties.getPrivateKeyFilePath()))));
+            Signature signature = signatures.get();
+            signature.initSign(getCredentials().privateKey);
             signature.update(message);
             String packageSign = Base64.getEncoder().encodeToString(signature.sign());
 
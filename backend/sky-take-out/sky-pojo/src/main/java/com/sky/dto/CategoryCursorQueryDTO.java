@@ -0,0 +1,22 @@
+package com.sky.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+public class CategoryCursorQueryDTO implements Serializable {
+
+    //上一页返回的游标，查询第一页时为空
+    private String after;
+
+    //每页记录数
+    private int pageSize;
+
+    //分类名称
+    private String name;
+
+    //分类类型 1菜品分类  2套餐分类
+    private Integer type;
+
+}
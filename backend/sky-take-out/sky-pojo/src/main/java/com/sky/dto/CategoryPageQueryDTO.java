@@ -19,4 +19,7 @@ public class CategoryPageQueryDTO implements Serializable {
     //分类类型 1菜品分类  2套餐分类
     private Integer type;
 
+    //是否需要查询总记录数，传 false 时不执行 count 查询
+    private Boolean needTotal;
+
 }
@@ -0,0 +1,41 @@
+package com.sky.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsVO implements Serializable {
+
+    //缓存名称
+    private String name;
+
+    //当前条目数
+    private Long size;
+
+    //命中次数
+    private Long hitCount;
+
+    //未命中次数
+    private Long missCount;
+
+    //命中率
+    private Double hitRate;
+
+    //淘汰或失效次数
+    private Long evictionCount;
+
+    //从数据库加载的次数
+    private Long loadCount;
+
+    //最近一次加载时间
+    private LocalDateTime lastLoadTime;
+
+}
@@ -26,6 +26,10 @@ public class DishVO implements Serializable {
     private BigDecimal price;
     //图片
     private String image;
+    //缩略图、列表图、详情图，由原图地址派生，不保存到数据库
+    private String thumbnailImage;
+    private String listImage;
+    private String detailImage;
     //描述信息
     private String description;
     //0 停售 1 起售
@@ -0,0 +1,40 @@
+package com.sky.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HttpPoolStatsVO implements Serializable {
+
+    //租用中的连接数
+    private Integer leased;
+
+    //等待租用连接的请求数
+    private Integer pending;
+
+    //空闲的连接数
+    private Integer available;
+
+    //最大连接数
+    private Integer max;
+
+    //累计租用连接次数
+    private Long leaseCount;
+
+    //等待连接超时次数
+    private Long leaseTimeoutCount;
+
+    //平均等待连接时间(毫秒)，按全部租用次数(含超时)计算
+    private Double avgLeaseWaitMillis;
+
+    //最大等待连接时间(毫秒)
+    private Long maxLeaseWaitMillis;
+
+}
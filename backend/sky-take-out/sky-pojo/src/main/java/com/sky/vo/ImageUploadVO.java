@@ -0,0 +1,28 @@
+package com.sky.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageUploadVO implements Serializable {
+
+    //原图
+    private String image;
+
+    //缩略图
+    private String thumbnailImage;
+
+    //列表图
+    private String listImage;
+
+    //详情图
+    private String detailImage;
+
+}
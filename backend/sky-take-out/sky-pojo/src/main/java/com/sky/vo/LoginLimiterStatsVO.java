@@ -0,0 +1,25 @@
+package com.sky.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginLimiterStatsVO implements Serializable {
+
+    //是否开启
+    private Boolean enabled;
+
+    //因用户名失败次数过多被拒绝的次数
+    private Long blockedByUsername;
+
+    //因ip失败次数过多被拒绝的次数
+    private Long blockedByIp;
+
+}
@@ -37,6 +37,11 @@ public class SetmealVO implements Serializable {
     //图片
     private String image;
 
+    //缩略图、列表图、详情图，由原图地址派生，不保存到数据库
+    private String thumbnailImage;
+    private String listImage;
+    private String detailImage;
+
     //更新时间
     private LocalDateTime updateTime;
 
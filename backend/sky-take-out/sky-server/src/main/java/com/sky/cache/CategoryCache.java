@@ -0,0 +1,226 @@
+package com.sky.cache;
+
+import com.sky.constant.CacheConstant;
+import com.sky.entity.Category;
+import com.sky.mapper.CategoryMapper;
+import com.sky.search.NgramNameIndex;
+import com.sky.vo.CacheStatsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分类本地缓存
+ * 分类数据量小、修改少、读取多，所以把全部分类加载成一个不可变的快照，按 id、类型、状态和名称建好索引。
+ * 读操作只读取当前快照，不加锁；分类发生修改后重新加载一个新快照整体替换旧快照(写时复制)。
+ * 返回给调用方的是快照中对象的副本，调用方修改不会影响快照。
+ * 分类修改后通过两级缓存的失效频道广播，所有实例(包括本实例)收到后重新加载，
+ * 依赖分类的菜单快照注册在同一个频道上，在分类缓存重新加载之后失效。
+ * 命中率按查询统计：按 id 查到分类、按类型和状态查到分类列表时算命中，查不到时算未命中。
+ */
+@Component
+@Slf4j
+public class CategoryCache {
+
+    @Autowired
+    private CategoryMapper categoryMapper;
+    @Autowired
+    private TwoLevelCacheManager cacheManager;
+
+    private volatile Snapshot snapshot;
+    // 刷新请求的序号，以及已完成的加载所覆盖到的最大序号
+    private final AtomicLong refreshRequests = new AtomicLong();
+    private long refreshedTicket;
+
+    // 按 id、类型和状态查询时是否查到
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder invalidateCount = new LongAdder();
+    private volatile LocalDateTime lastLoadTime;
+
+    /**
+     * 根据id查询分类
+     * @param id
+     * @return
+     */
+    public Category getById(Long id) {
+        Category category = current().byId.get(id);
+        count(category != null);
+        return copy(category);
+    }
+
+    /**
+     * 根据类型和状态查询分类，参数为 null 表示不限制
+     * @param type
+     * @param status
+     * @return
+     */
+    public List<Category> list(Integer type, Integer status) {
+        Snapshot current = current();
+        List<Category> list;
+        if (status == null) {
+            list = type == null ? current.all : current.byType.get(type);
+        } else {
+            Map<Integer, List<Category>> byType = current.byStatusAndType.get(status);
+            list = byType == null ? null : byType.get(type);
+        }
+        count(list != null);
+        if (list == null) {
+            return new ArrayList<>();
+        }
+        List<Category> copies = new ArrayList<>(list.size());
+        for (Category category : list) {
+            copies.add(copy(category));
+        }
+        return copies;
+    }
+
+    /**
+     * 查询名称中包含关键字的分类id
+     * @param name
+     * @return
+     */
+    public Set<Long> searchIds(String name) {
+        return current().nameIndex.search(name);
+    }
+
+    /**
+     * 分类发生修改后调用，广播给所有实例重新加载快照，本实例在返回前就已经重新加载
+     * @param categoryId 修改的分类id，不确定时为 null
+     */
+    public void refresh(Long categoryId) {
+        cacheManager.publishEviction(CacheConstant.CATEGORY, categoryId == null ? null : String.valueOf(categoryId));
+    }
+
+    /**
+     * 收到分类的失效通知(本实例或其他实例发起)时重新加载快照
+     */
+    @PostConstruct
+    public void init() {
+        cacheManager.addEvictionListener((cacheName, key) -> {
+            if (CacheConstant.CATEGORY.equals(cacheName)) {
+                reload();
+            }
+        });
+    }
+
+    /**
+     * 重新加载快照
+     * 加载过程串行执行，保证最后一次加载读到的一定是最新的数据；
+     * 加载期间读请求继续使用旧快照，不会等待也不会各自查询数据库。
+     * 多次修改同时触发时合并加载：在某次加载开始之前提出的刷新请求都由这次加载满足，不再重复加载。
+     */
+    private void reload() {
+        invalidateCount.increment();
+        long ticket = refreshRequests.incrementAndGet();
+        synchronized (this) {
+            if (refreshedTicket >= ticket) {
+                return;
+            }
+            long covered = refreshRequests.get();
+            snapshot = load();
+            refreshedTicket = covered;
+        }
+    }
+
+    public CacheStatsVO stats() {
+        Snapshot current = snapshot;
+        long hits = hitCount.sum();
+        long misses = missCount.sum();
+        return CacheStatsVO.builder()
+                .name("category")
+                .size(current == null ? 0L : current.all.size())
+                .hitCount(hits)
+                .missCount(misses)
+                .hitRate(hits + misses == 0 ? 0 : (double) hits / (hits + misses))
+                .evictionCount(invalidateCount.sum())
+                .loadCount(loadCount.sum())
+                .lastLoadTime(lastLoadTime)
+                .build();
+    }
+
+    private void count(boolean hit) {
+        if (hit) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = load();
+            }
+            return snapshot;
+        }
+    }
+
+    private static Category copy(Category category) {
+        if (category == null) {
+            return null;
+        }
+        Category copy = new Category();
+        BeanUtils.copyProperties(category, copy);
+        return copy;
+    }
+
+    private Snapshot load() {
+        List<Category> categories = categoryMapper.listAll();
+        loadCount.increment();
+        lastLoadTime = LocalDateTime.now();
+        log.info("加载分类缓存快照, 共 {} 条", categories.size());
+        return new Snapshot(categories);
+    }
+
+    /**
+     * 不可变的分类快照
+     */
+    private static final class Snapshot {
+        private final List<Category> all;
+        private final Map<Long, Category> byId;
+        private final Map<Integer, List<Category>> byType;
+        // 状态 -> 类型 -> 分类列表，类型为 null 的键保存该状态下的全部分类
+        private final Map<Integer, Map<Integer, List<Category>>> byStatusAndType;
+        private final NgramNameIndex nameIndex = new NgramNameIndex();
+
+        private Snapshot(List<Category> categories) {
+            Map<Long, Category> idIndex = new HashMap<>();
+            Map<Integer, List<Category>> typeIndex = new HashMap<>();
+            Map<Integer, Map<Integer, List<Category>>> statusIndex = new HashMap<>();
+            for (Category category : categories) {
+                idIndex.put(category.getId(), category);
+                typeIndex.computeIfAbsent(category.getType(), k -> new ArrayList<>()).add(category);
+                Map<Integer, List<Category>> statusTypeIndex = statusIndex.computeIfAbsent(category.getStatus(), k -> new HashMap<>());
+                statusTypeIndex.computeIfAbsent(null, k -> new ArrayList<>()).add(category);
+                statusTypeIndex.computeIfAbsent(category.getType(), k -> new ArrayList<>()).add(category);
+                nameIndex.put(category.getId(), category.getName());
+            }
+            typeIndex.replaceAll((k, v) -> Collections.unmodifiableList(v));
+            for (Map<Integer, List<Category>> statusTypeIndex : statusIndex.values()) {
+                statusTypeIndex.replaceAll((k, v) -> Collections.unmodifiableList(v));
+            }
+            this.all = Collections.unmodifiableList(new ArrayList<>(categories));
+            this.byId = idIndex;
+            this.byType = typeIndex;
+            this.byStatusAndType = statusIndex;
+        }
+    }
+}
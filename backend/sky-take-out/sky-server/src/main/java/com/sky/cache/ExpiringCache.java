@@ -0,0 +1,124 @@
+package com.sky.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带过期时间的有界本地缓存
+ * 每个条目单独指定过期时刻，读到过期条目按未命中处理并顺手删除。
+ * 写入时如果超过容量上限，先清理一遍过期条目，仍然放不下就放弃本次写入（缓存只用来加速，放弃写入不影响正确性）。
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class ExpiringCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> map = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public ExpiringCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 查询缓存，不存在或已过期返回 null
+     * @param key
+     * @return
+     */
+    public V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        if (entry.expireAt <= System.currentTimeMillis()) {
+            // 只删除自己读到的这个条目，避免误删并发写入的新值
+            if (map.remove(key, entry)) {
+                evictionCount.increment();
+            }
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return entry.value;
+    }
+
+    /**
+     * 写入缓存
+     * @param key
+     * @param value
+     * @param expireAt 过期时刻(毫秒时间戳)
+     */
+    public void put(K key, V value, long expireAt) {
+        long now = System.currentTimeMillis();
+        if (expireAt <= now) {
+            return;
+        }
+        if (map.size() >= maxSize && !map.containsKey(key)) {
+            purgeExpired(now);
+            if (map.size() >= maxSize) {
+                return;
+            }
+        }
+        map.put(key, new Entry<>(value, expireAt));
+    }
+
+    public void remove(K key) {
+        map.remove(key);
+    }
+
+    public void clear() {
+        map.clear();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * 清理所有已过期的条目
+     * @param now
+     */
+    private void purgeExpired(long now) {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().expireAt <= now) {
+                iterator.remove();
+                evictionCount.increment();
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expireAt;
+
+        private Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
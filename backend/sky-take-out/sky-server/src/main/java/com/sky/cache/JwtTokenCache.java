@@ -0,0 +1,91 @@
+package com.sky.cache;
+
+import com.sky.properties.JwtProperties;
+import com.sky.vo.CacheStatsVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * 已校验通过的管理端令牌缓存
+ * 同一个令牌在有效期内只需要完整校验一次签名，之后按令牌摘要直接取出员工id。
+ * 缓存里只存令牌的 SHA-256 摘要，不保存令牌原文。
+ */
+@Component
+public class JwtTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    @Autowired
+    private JwtProperties jwtProperties;
+
+    private ExpiringCache<String, Long> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new ExpiringCache<>(jwtProperties.getTokenCacheMaxSize());
+    }
+
+    /**
+     * 根据令牌查询已缓存的员工id
+     * @param token
+     * @return 未命中返回 null
+     */
+    public Long getEmpId(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        return cache.get(digest(token));
+    }
+
+    /**
+     * 缓存校验通过的令牌
+     * 缓存时长取配置的 ttl 与令牌自身 exp 中较早的一个，令牌过期后缓存一定随之失效
+     * @param token
+     * @param empId
+     * @param expiration 令牌的 exp 声明，可能为 null
+     */
+    public void put(String token, Long empId, Date expiration) {
+        long expireAt = System.currentTimeMillis() + jwtProperties.getTokenCacheTtl();
+        if (expiration != null) {
+            expireAt = Math.min(expireAt, expiration.getTime());
+        }
+        cache.put(digest(token), empId, expireAt);
+    }
+
+    public ExpiringCache<String, Long> getCache() {
+        return cache;
+    }
+
+    public CacheStatsVO stats() {
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+        return CacheStatsVO.builder()
+                .name("jwtToken")
+                .size((long) cache.size())
+                .hitCount(hits)
+                .missCount(misses)
+                .hitRate(hits + misses == 0 ? 0 : (double) hits / (hits + misses))
+                .evictionCount(cache.getEvictionCount())
+                .build();
+    }
+
+    private static String digest(String token) {
+        MessageDigest messageDigest = SHA_256.get();
+        messageDigest.reset();
+        byte[] hash = messageDigest.digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hash);
+    }
+}
@@ -0,0 +1,236 @@
+package com.sky.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sky.constant.CacheConstant;
+import com.sky.constant.StatusConstant;
+import com.sky.entity.Category;
+import com.sky.json.JacksonObjectMapper;
+import com.sky.result.Result;
+import com.sky.service.DishService;
+import com.sky.service.SetmealService;
+import com.sky.storage.ImageUrlResolver;
+import com.sky.storage.ImageVariant;
+import com.sky.utils.ContentHashUtil;
+import com.sky.vo.DishVO;
+import com.sky.vo.SetmealVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户端菜单快照
+ * 按分类把启用的菜品(含口味)、套餐(含套餐菜品)组装成 DishVO、SetmealVO，
+ * 并直接序列化成完整的响应 JSON 字节保存在内存中，查询时原样写出，不查询数据库也不重复序列化。
+ * 菜品、套餐响应各自以内容的 SHA-256 作为 ETag，内容相同的响应在重启后、在不同实例上 ETag 都相同，
+ * 客户端数据没有变化时返回 304。
+ * 图片地址在构建时改写成返回给用户端的地址(开启图片缓存时是代理地址)，并补充由原图派生的缩略图、列表图、详情图地址，
+ * 改写的是复制出的对象，不修改缓存中的实例。
+ * 只缓存存在的分类，客户端传入不存在的分类id时返回空的快照，不放入缓存。
+ * 数据来自菜品、套餐的两级缓存，这两个缓存按分类失效时(包括其他实例广播的失效)，
+ * 只让对应分类的快照失效，下次访问时重新构建这一个分类。
+ * 分类本身修改(启用、停用、改名)时同样让对应分类的快照失效，这个通知在分类缓存重新加载之后才处理。
+ */
+@Component
+@Slf4j
+public class MenuSnapshotCache {
+
+    @Autowired
+    private CategoryCache categoryCache;
+    @Autowired
+    private DishService dishService;
+    @Autowired
+    private SetmealService setmealService;
+    @Autowired
+    private TwoLevelCacheManager cacheManager;
+    @Autowired
+    private ImageUrlResolver imageUrlResolver;
+
+    private final ObjectMapper objectMapper = new JacksonObjectMapper();
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+    // 每个分类的失效次数，构建期间分类又失效时，构建结果不放入缓存
+    private final Map<Long, Long> generations = new ConcurrentHashMap<>();
+    // 全部失效的次数，构建期间发生全部失效时(包括还没有快照的分类)，构建结果同样不放入缓存
+    private final AtomicLong globalGeneration = new AtomicLong();
+    // 同一个分类同时只有一个线程构建，其他线程等待同一个结果
+    private final SingleFlight<Long, Snapshot> singleFlight = new SingleFlight<>();
+    // 不存在的分类共用的空快照
+    private Snapshot emptySnapshot;
+
+    /**
+     * 获取分类的菜单快照
+     * @param categoryId
+     * @return
+     */
+    public Snapshot get(Long categoryId) {
+        Snapshot snapshot = snapshots.get(categoryId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        // 分类不存在时不构建也不缓存，快照的数量不超过分类的数量
+        if (categoryCache.getById(categoryId) == null) {
+            return emptySnapshot;
+        }
+        try {
+            return singleFlight.load(categoryId, () -> {
+                Snapshot current = snapshots.get(categoryId);
+                if (current != null) {
+                    return current;
+                }
+                Long generation = generations.get(categoryId);
+                long global = globalGeneration.get();
+                current = build(categoryId);
+                if (isCurrent(categoryId, generation, global)) {
+                    snapshots.put(categoryId, current);
+                    // 检查之后、放入之前发生了失效，撤销刚放入的快照
+                    if (!isCurrent(categoryId, generation, global)) {
+                        snapshots.remove(categoryId, current);
+                    }
+                }
+                return current;
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("构建菜单快照失败", e);
+        }
+    }
+
+    /**
+     * 菜品、套餐缓存或分类失效(本实例或其他实例发起)时，让对应分类的快照失效
+     * CategoryCache 先于本类初始化，它的监听器先注册，收到分类失效时先重新加载分类再执行这里
+     */
+    @PostConstruct
+    public void init() {
+        emptySnapshot = new Snapshot(serialize(Collections.emptyList()), serialize(Collections.emptyList()));
+        cacheManager.addEvictionListener((cacheName, key) -> {
+            if (!CacheConstant.DISH_BY_CATEGORY.equals(cacheName) && !CacheConstant.SETMEAL_BY_CATEGORY.equals(cacheName)
+                    && !CacheConstant.CATEGORY.equals(cacheName)) {
+                return;
+            }
+            if (key == null) {
+                invalidateAll();
+            } else {
+                invalidate(Long.valueOf(key));
+            }
+        });
+    }
+
+    /**
+     * 让分类的快照失效，下次访问时重新构建
+     * @param categoryId
+     */
+    public void invalidate(Long categoryId) {
+        generations.merge(categoryId, 1L, Long::sum);
+        snapshots.remove(categoryId);
+    }
+
+    public void invalidateAll() {
+        globalGeneration.incrementAndGet();
+        for (Long categoryId : snapshots.keySet()) {
+            invalidate(categoryId);
+        }
+    }
+
+    private boolean isCurrent(Long categoryId, Long generation, long global) {
+        return global == globalGeneration.get() && Objects.equals(generation, generations.get(categoryId));
+    }
+
+    private Snapshot build(Long categoryId) {
+        Category category = categoryCache.getById(categoryId);
+        List<DishVO> dishVOs = Collections.emptyList();
+        List<SetmealVO> setmealVOs = Collections.emptyList();
+        if (category != null && StatusConstant.ENABLE.equals(category.getStatus())) {
+            dishVOs = new ArrayList<>();
+            for (DishVO dishVO : dishService.listByCategoryId(categoryId)) {
+                DishVO copy = new DishVO();
+                BeanUtils.copyProperties(dishVO, copy);
+                copy.setImage(imageUrlResolver.toServingUrl(dishVO.getImage()));
+                copy.setThumbnailImage(imageUrlResolver.toServingUrl(dishVO.getImage(), ImageVariant.THUMBNAIL));
+                copy.setListImage(imageUrlResolver.toServingUrl(dishVO.getImage(), ImageVariant.LIST));
+                copy.setDetailImage(imageUrlResolver.toServingUrl(dishVO.getImage(), ImageVariant.DETAIL));
+                dishVOs.add(copy);
+            }
+            setmealVOs = new ArrayList<>();
+            for (SetmealVO setmealVO : setmealService.listByCategoryId(categoryId)) {
+                SetmealVO copy = new SetmealVO();
+                BeanUtils.copyProperties(setmealVO, copy);
+                copy.setImage(imageUrlResolver.toServingUrl(setmealVO.getImage()));
+                copy.setThumbnailImage(imageUrlResolver.toServingUrl(setmealVO.getImage(), ImageVariant.THUMBNAIL));
+                copy.setListImage(imageUrlResolver.toServingUrl(setmealVO.getImage(), ImageVariant.LIST));
+                copy.setDetailImage(imageUrlResolver.toServingUrl(setmealVO.getImage(), ImageVariant.DETAIL));
+                setmealVOs.add(copy);
+            }
+        }
+        log.info("构建菜单快照, 分类: {}, 菜品 {} 个, 套餐 {} 个", categoryId, dishVOs.size(), setmealVOs.size());
+        return new Snapshot(serialize(dishVOs), serialize(setmealVOs));
+    }
+
+    private byte[] serialize(Collection<?> list) {
+        try {
+            return objectMapper.writeValueAsBytes(Result.success(list));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("菜单快照序列化失败", e);
+        }
+    }
+
+    /**
+     * 一个分类的菜单快照，字节数组创建后不再修改
+     */
+    public static final class Snapshot {
+        private final byte[] dishBody;
+        private final byte[] setmealBody;
+        private final String dishEtag;
+        private final String setmealEtag;
+
+        private Snapshot(byte[] dishBody, byte[] setmealBody) {
+            this.dishBody = dishBody;
+            this.setmealBody = setmealBody;
+            this.dishEtag = "\"" + ContentHashUtil.sha256Hex(dishBody) + "\"";
+            this.setmealEtag = "\"" + ContentHashUtil.sha256Hex(setmealBody) + "\"";
+        }
+
+        /**
+         * 菜品列表响应的 ETag
+         * @return
+         */
+        public String getDishEtag() {
+            return dishEtag;
+        }
+
+        /**
+         * 套餐列表响应的 ETag
+         * @return
+         */
+        public String getSetmealEtag() {
+            return setmealEtag;
+        }
+
+        /**
+         * 菜品列表的响应 JSON
+         * @return
+         */
+        public byte[] getDishBody() {
+            return dishBody;
+        }
+
+        /**
+         * 套餐列表的响应 JSON
+         * @return
+         */
+        public byte[] getSetmealBody() {
+            return setmealBody;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.sky.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 合并同一个键的并发加载
+ * 同一个键同时只有一个线程执行加载，其他线程等待同一个 Future 的结果，
+ * 热点缓存过期时不会有大量请求同时查询数据库。加载结束后立即移除，下次加载重新执行。
+ * @param <K>
+ * @param <V>
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 加载键对应的值，已有线程在加载时等待它的结果
+     * @param key
+     * @param loader
+     * @return
+     */
+    public V load(K key, Callable<V> loader) throws Exception {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+        return run(key, future, loader);
+    }
+
+    /**
+     * 在后台加载，已有线程在加载这个键或者线程池已满时直接返回
+     * @param key
+     * @param loader
+     * @param executor
+     * @return 是否发起了加载
+     */
+    public boolean loadAsync(K key, Callable<V> loader, Executor executor) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, future) != null) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    run(key, future, loader);
+                } catch (Exception ignored) {
+                    // 异常已经传给等待的线程，后台加载失败时下次读取再重试
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            return false;
+        }
+    }
+
+    public boolean isLoading(K key) {
+        return inFlight.containsKey(key);
+    }
+
+    private V run(K key, CompletableFuture<V> future, Callable<V> loader) throws Exception {
+        try {
+            V value = loader.call();
+            future.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private V await(CompletableFuture<V> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
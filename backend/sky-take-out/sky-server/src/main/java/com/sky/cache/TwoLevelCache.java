@@ -0,0 +1,394 @@
+package com.sky.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sky.vo.CacheStatsVO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 两级缓存：一级为本实例内存中的 ExpiringCache，二级为 Redis
+ * 读取时依次查本地、Redis，都没有再加载并写入两级缓存；
+ * 失效时删除本地和 Redis 中的数据，并通过 TwoLevelCacheManager 广播给其他实例删除它们的本地缓存。
+ * 缓存键统一转成字符串，保证本地删除和收到广播后的删除使用同一个键。
+ *
+ * 防止热点键过期时大量请求同时加载(缓存击穿)：
+ * 1. 同一个键的并发加载通过 SingleFlight 合并，只有一个线程查询数据库；
+ * 2. 每个条目记录加载时刻、新鲜期和加载耗时，过了新鲜期但还在 stale 期内时直接返回旧值，同时在后台重新加载；
+ * 3. 新鲜期内按 XFetch 算法以逐渐增大的概率提前在后台刷新，加载越慢越早刷新，热点键通常在过期前就已经更新。
+ * 只有通过 get(key, valueLoader) 读取(@Cacheable(sync = true))时才有加载器，才会做后台刷新。
+ *
+ * 防止加载期间发生的失效被旧数据覆盖：Redis 中每个键有一个版本号，整个缓存另有一个版本号，
+ * 删除键时版本号加一，清空缓存时缓存版本号加一。加载前读取两个版本号，加载后用脚本比较版本号，
+ * 没有变化才写入 Redis，否则丢弃这次加载的结果，下次读取重新加载。
+ * 同一个缓存的键都带有 {缓存名} 作为hash tag，集群模式下脚本操作的键落在同一个slot。
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    // 版本号没有变化时才写入缓存值
+    private static final DefaultRedisScript<Long> PUT_IF_VERSION_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[2]) or '') ~= ARGV[1] or (redis.call('GET', KEYS[3]) or '') ~= ARGV[2] then\n" +
+            "  return 0\n" +
+            "end\n" +
+            "redis.call('SET', KEYS[1], ARGV[3], 'PX', ARGV[4])\n" +
+            "return 1", Long.class);
+    // 版本号加一并删除缓存值，进行中的加载都不会再写入
+    private static final DefaultRedisScript<Long> EVICT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('INCR', KEYS[2])\n" +
+            "redis.call('PEXPIRE', KEYS[2], ARGV[1])\n" +
+            "return redis.call('DEL', KEYS[1])", Long.class);
+    // 版本号只需要比加载耗时活得久，过期后读到空版本，进行中的加载同样不会写入
+    private static final long VERSION_TTL_MILLIS = TimeUnit.DAYS.toMillis(1);
+    // 清空缓存时每批 SCAN、DEL 的键数
+    private static final int CLEAR_BATCH_SIZE = 500;
+
+    private final String name;
+    private final TwoLevelCacheManager cacheManager;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final ExpiringCache<String, CacheEntry> localCache;
+    private final long localTtlMillis;
+    private final long ttlMillis;
+    private final long staleMillis;
+    private final double earlyRefreshBeta;
+    private final String redisKeyPrefix;
+    private final String versionKeyPrefix;
+    private final String cacheVersionKey;
+    private final Executor refreshExecutor;
+    private final SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+    // 每次失效加一，加载期间发生过失效时加载结果不写入缓存，避免旧数据覆盖失效
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder localHitCount = new LongAdder();
+    private final LongAdder redisHitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder evictCount = new LongAdder();
+    private final LongAdder staleHitCount = new LongAdder();
+    private final LongAdder refreshCount = new LongAdder();
+    private volatile LocalDateTime lastLoadTime;
+
+    TwoLevelCache(String name, TwoLevelCacheManager cacheManager, StringRedisTemplate stringRedisTemplate, ObjectMapper objectMapper,
+                  int localMaxSize, long localTtlMillis, long ttlMillis, long staleMillis, double earlyRefreshBeta,
+                  String redisKeyPrefix, Executor refreshExecutor) {
+        super(true);
+        this.name = name;
+        this.cacheManager = cacheManager;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.localCache = new ExpiringCache<>(localMaxSize);
+        this.localTtlMillis = localTtlMillis;
+        this.ttlMillis = ttlMillis;
+        this.staleMillis = staleMillis;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.redisKeyPrefix = redisKeyPrefix + "{" + name + "}:";
+        this.versionKeyPrefix = redisKeyPrefix + "{" + name + "}-version:";
+        this.cacheVersionKey = redisKeyPrefix + "{" + name + "}-version";
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return localCache;
+    }
+
+    /**
+     * 没有加载器的读取，stale 期内的旧值也直接返回
+     */
+    @Override
+    protected Object lookup(Object key) {
+        CacheEntry entry = getEntry(String.valueOf(key));
+        return entry == null ? null : entry.storeValue();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String cacheKey = String.valueOf(key);
+        CacheEntry entry = getEntry(cacheKey);
+        if (entry == null) {
+            // 没有可用的值，同一个键只有一个线程加载，其他线程等待它的结果
+            try {
+                return (T) fromStoreValue(singleFlight.load(cacheKey, () -> load(cacheKey, valueLoader)));
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        }
+        long now = System.currentTimeMillis();
+        if (now >= entry.getFreshUntil()) {
+            // 已过新鲜期，先返回旧值，后台重新加载
+            staleHitCount.increment();
+            refreshAsync(cacheKey, valueLoader);
+        } else if (shouldRefreshEarly(entry, now)) {
+            refreshAsync(cacheKey, valueLoader);
+        }
+        return (T) fromStoreValue(entry.storeValue());
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String cacheKey = String.valueOf(key);
+        CacheEntry entry = newEntry(toStoreValue(value), 0);
+        try {
+            stringRedisTemplate.opsForValue().set(redisKeyPrefix + cacheKey, objectMapper.writeValueAsString(entry),
+                    ttlMillis + staleMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("写入二级缓存失败, cache: {}, key: {}", name, cacheKey, e);
+        }
+        putLocal(cacheKey, entry);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String cacheKey = String.valueOf(key);
+        try {
+            stringRedisTemplate.execute(EVICT_SCRIPT, Arrays.asList(redisKeyPrefix + cacheKey, versionKeyPrefix + cacheKey),
+                    String.valueOf(VERSION_TTL_MILLIS));
+        } catch (Exception e) {
+            log.error("删除二级缓存失败, 最多在过期前读到旧数据, cache: {}, key: {}", name, cacheKey, e);
+        }
+        evictLocal(cacheKey);
+        cacheManager.publishEviction(name, cacheKey);
+    }
+
+    @Override
+    public void clear() {
+        try {
+            // 先让进行中的加载失效，再删除数据；
+            // 用 SCAN 按前缀分批查找，不用 KEYS 阻塞遍历整个库(库中还有购物车、幂等、限流等大量的键)
+            stringRedisTemplate.opsForValue().increment(cacheVersionKey, 1);
+            stringRedisTemplate.expire(cacheVersionKey, VERSION_TTL_MILLIS, TimeUnit.MILLISECONDS);
+            ScanOptions options = ScanOptions.scanOptions().match(redisKeyPrefix + "*").count(CLEAR_BATCH_SIZE).build();
+            List<String> batch = new ArrayList<>(CLEAR_BATCH_SIZE);
+            try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+                while (cursor.hasNext()) {
+                    batch.add(cursor.next());
+                    if (batch.size() >= CLEAR_BATCH_SIZE) {
+                        stringRedisTemplate.delete(batch);
+                        batch.clear();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                stringRedisTemplate.delete(batch);
+            }
+        } catch (Exception e) {
+            log.error("清空二级缓存失败, cache: {}", name, e);
+        }
+        clearLocal();
+        cacheManager.publishEviction(name, null);
+    }
+
+    /**
+     * 只删除本地缓存，收到其他实例的失效广播时调用
+     * @param cacheKey
+     */
+    void evictLocal(String cacheKey) {
+        generation.incrementAndGet();
+        evictCount.increment();
+        localCache.remove(cacheKey);
+    }
+
+    void clearLocal() {
+        generation.incrementAndGet();
+        evictCount.increment();
+        localCache.clear();
+    }
+
+    public CacheStatsVO stats() {
+        long hits = localHitCount.sum() + redisHitCount.sum();
+        long misses = missCount.sum();
+        return CacheStatsVO.builder()
+                .name(name)
+                .size((long) localCache.size())
+                .hitCount(hits)
+                .missCount(misses)
+                .hitRate(hits + misses == 0 ? 0 : (double) hits / (hits + misses))
+                .evictionCount(evictCount.sum())
+                .loadCount(loadCount.sum())
+                .lastLoadTime(lastLoadTime)
+                .build();
+    }
+
+    public long getStaleHitCount() {
+        return staleHitCount.sum();
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.sum();
+    }
+
+    /**
+     * XFetch：剩余新鲜时间越短、加载越慢，提前刷新的概率越大
+     * 条件为 now - 加载耗时 * beta * ln(random) >= 新鲜期结束时刻
+     */
+    private boolean shouldRefreshEarly(CacheEntry entry, long now) {
+        if (earlyRefreshBeta <= 0) {
+            return false;
+        }
+        double random = ThreadLocalRandom.current().nextDouble();
+        if (random <= 0) {
+            return true;
+        }
+        return now - entry.getLoadMillis() * earlyRefreshBeta * Math.log(random) >= entry.getFreshUntil();
+    }
+
+    private void refreshAsync(String cacheKey, Callable<?> valueLoader) {
+        if (singleFlight.loadAsync(cacheKey, () -> refresh(cacheKey, valueLoader), refreshExecutor)) {
+            refreshCount.increment();
+        }
+    }
+
+    /**
+     * 后台刷新时先看 Redis 中是否已经有其他实例刷新过的新值，没有再加载
+     */
+    private Object refresh(String cacheKey, Callable<?> valueLoader) throws Exception {
+        CacheEntry remote = getFromRedis(cacheKey);
+        CacheEntry local = localCache.get(cacheKey);
+        if (remote != null && remote.getFreshUntil() > System.currentTimeMillis()
+                && (local == null || remote.getFreshUntil() > local.getFreshUntil())) {
+            putLocal(cacheKey, remote);
+            return remote.storeValue();
+        }
+        try {
+            return load(cacheKey, valueLoader);
+        } catch (Exception e) {
+            log.warn("后台刷新缓存失败, 继续使用旧值, cache: {}, key: {}", name, cacheKey, e);
+            throw e;
+        }
+    }
+
+    private Object load(String cacheKey, Callable<?> valueLoader) throws Exception {
+        long startGeneration = generation.get();
+        List<String> versions = getVersions(cacheKey);
+        long start = System.currentTimeMillis();
+        Object storeValue = toStoreValue(valueLoader.call());
+        loadCount.increment();
+        lastLoadTime = LocalDateTime.now();
+        if (generation.get() == startGeneration) {
+            putLoaded(cacheKey, newEntry(storeValue, System.currentTimeMillis() - start), versions);
+        }
+        return storeValue;
+    }
+
+    /**
+     * 写入加载结果，写入的是刚从数据库读到的数据，不需要通知其他实例
+     * 加载期间 Redis 中的版本号变化过(其他实例删除了这个键)时两级都不写入；
+     * 读取版本号失败(Redis 不可用)时只写入本地缓存
+     */
+    private void putLoaded(String cacheKey, CacheEntry entry, List<String> versions) {
+        if (versions != null) {
+            try {
+                Long written = stringRedisTemplate.execute(PUT_IF_VERSION_SCRIPT,
+                        Arrays.asList(redisKeyPrefix + cacheKey, versionKeyPrefix + cacheKey, cacheVersionKey),
+                        versions.get(0), versions.get(1), objectMapper.writeValueAsString(entry),
+                        String.valueOf(ttlMillis + staleMillis));
+                if (written == null || written == 0) {
+                    log.debug("加载期间缓存已失效, 丢弃加载结果, cache: {}, key: {}", name, cacheKey);
+                    return;
+                }
+            } catch (Exception e) {
+                log.warn("写入二级缓存失败, cache: {}, key: {}", name, cacheKey, e);
+            }
+        }
+        putLocal(cacheKey, entry);
+    }
+
+    /**
+     * 读取键和整个缓存的版本号，不存在时为空串；读取失败时返回 null
+     */
+    private List<String> getVersions(String cacheKey) {
+        try {
+            List<String> versions = stringRedisTemplate.opsForValue().multiGet(Arrays.asList(versionKeyPrefix + cacheKey, cacheVersionKey));
+            if (versions == null || versions.size() != 2) {
+                return null;
+            }
+            return Arrays.asList(versions.get(0) == null ? "" : versions.get(0), versions.get(1) == null ? "" : versions.get(1));
+        } catch (Exception e) {
+            log.warn("读取二级缓存版本号失败, cache: {}, key: {}", name, cacheKey, e);
+            return null;
+        }
+    }
+
+    private CacheEntry newEntry(Object storeValue, long loadMillis) {
+        return new CacheEntry(storeValue == NullValue.INSTANCE ? null : storeValue, System.currentTimeMillis() + ttlMillis, loadMillis);
+    }
+
+    private void putLocal(String cacheKey, CacheEntry entry) {
+        long expireAt = Math.min(System.currentTimeMillis() + localTtlMillis, entry.getFreshUntil() + staleMillis);
+        localCache.put(cacheKey, entry, expireAt);
+    }
+
+    private CacheEntry getEntry(String cacheKey) {
+        CacheEntry entry = localCache.get(cacheKey);
+        if (entry != null) {
+            localHitCount.increment();
+            return entry;
+        }
+        entry = getFromRedis(cacheKey);
+        if (entry != null) {
+            redisHitCount.increment();
+            putLocal(cacheKey, entry);
+            return entry;
+        }
+        missCount.increment();
+        return null;
+    }
+
+    private CacheEntry getFromRedis(String cacheKey) {
+        try {
+            String json = stringRedisTemplate.opsForValue().get(redisKeyPrefix + cacheKey);
+            if (json == null) {
+                return null;
+            }
+            Object value = objectMapper.readValue(json, Object.class);
+            return value instanceof CacheEntry ? (CacheEntry) value : null;
+        } catch (Exception e) {
+            log.warn("读取二级缓存失败, cache: {}, key: {}", name, cacheKey, e);
+            return null;
+        }
+    }
+
+    /**
+     * 缓存条目，同时保存在本地和 Redis 中
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CacheEntry {
+        // 缓存的值，null 表示缓存了空结果
+        private Object value;
+        // 新鲜期结束时刻，之后的 stale 期内仍可返回，同时后台刷新
+        private long freshUntil;
+        // 加载耗时(毫秒)，用于计算提前刷新的概率
+        private long loadMillis;
+
+        Object storeValue() {
+            return value == null ? NullValue.INSTANCE : value;
+        }
+    }
+}
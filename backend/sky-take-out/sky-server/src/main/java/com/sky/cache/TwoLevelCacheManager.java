@@ -0,0 +1,164 @@
+package com.sky.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.sky.json.JacksonObjectMapper;
+import com.sky.properties.TwoLevelCacheProperties;
+import com.sky.vo.CacheStatsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * 两级缓存管理器
+ * 缓存按名称在第一次使用时创建；开启了事务感知，事务中的失效操作在提交后才执行。
+ * 某个实例删除缓存后向 Redis 频道广播 {实例id, 缓存名, 键}，其他实例收到后删除各自的本地缓存，
+ * 本实例发出的消息直接忽略。本地和远程的失效都会通知注册的监听器，用来联动清理依赖这些数据的其他缓存。
+ */
+@Slf4j
+public class TwoLevelCacheManager extends AbstractTransactionSupportingCacheManager implements MessageListener {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TwoLevelCacheProperties properties;
+    private final ObjectMapper objectMapper;
+    // 区分广播消息是不是本实例发出的
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache> twoLevelCaches = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, String>> evictionListeners = new CopyOnWriteArrayList<>();
+    // 所有缓存共用的后台刷新线程池
+    private final ThreadPoolExecutor refreshExecutor;
+
+    public TwoLevelCacheManager(StringRedisTemplate stringRedisTemplate, TwoLevelCacheProperties properties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.properties = properties;
+        // Redis 中的值带上类型信息，读取时可以还原成原来的对象；
+        // 只允许还原项目自己的类和集合、数值类型，写入 Redis 的内容不能借此实例化任意类
+        PolymorphicTypeValidator typeValidator = BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType("com.sky.")
+                .allowIfSubType("java.util.")
+                .allowIfSubType("java.math.")
+                .build();
+        this.objectMapper = new JacksonObjectMapper();
+        this.objectMapper.activateDefaultTyping(typeValidator, ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.refreshExecutor = new ThreadPoolExecutor(properties.getRefreshThreads(), properties.getRefreshThreads(),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(properties.getRefreshQueueCapacity()), runnable -> {
+            Thread thread = new Thread(runnable, "cache-refresh-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        setTransactionAware(true);
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        return twoLevelCaches.computeIfAbsent(name, key -> new TwoLevelCache(key, this, stringRedisTemplate, objectMapper,
+                properties.getLocalMaxSize(), properties.getLocalTtlSeconds() * 1000,
+                properties.getTtlSeconds() * 1000, properties.getStaleSeconds() * 1000, properties.getEarlyRefreshBeta(),
+                properties.getRedisKeyPrefix(), refreshExecutor));
+    }
+
+    /**
+     * 注册缓存失效监听器，参数为缓存名和键，清空整个缓存时键为 null
+     * @param listener
+     */
+    public void addEvictionListener(BiConsumer<String, String> listener) {
+        evictionListeners.add(listener);
+    }
+
+    public List<CacheStatsVO> stats() {
+        List<CacheStatsVO> list = new ArrayList<>();
+        for (TwoLevelCache cache : twoLevelCaches.values()) {
+            list.add(cache.stats());
+        }
+        return list;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 本实例删除缓存后通知监听器并广播给其他实例
+     * 不是两级缓存的本地数据(分类、员工姓名索引)变更后也通过这里通知各个实例
+     * @param cacheName
+     * @param key
+     */
+    public void publishEviction(String cacheName, String key) {
+        notifyListeners(cacheName, key);
+        JSONObject message = new JSONObject();
+        message.put("instanceId", instanceId);
+        message.put("cache", cacheName);
+        message.put("key", key);
+        try {
+            stringRedisTemplate.convertAndSend(properties.getEvictChannel(), message.toJSONString());
+        } catch (Exception e) {
+            // 其他实例的本地缓存会在过期后自动更新
+            log.error("广播缓存失效失败, cache: {}, key: {}", cacheName, key, e);
+        }
+    }
+
+    /**
+     * 收到缓存失效广播
+     * @param message
+     * @param pattern
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        JSONObject jsonObject = JSON.parseObject(new String(message.getBody(), StandardCharsets.UTF_8));
+        if (instanceId.equals(jsonObject.getString("instanceId"))) {
+            return;
+        }
+        String cacheName = jsonObject.getString("cache");
+        String key = jsonObject.getString("key");
+        TwoLevelCache cache = twoLevelCaches.get(cacheName);
+        if (cache != null) {
+            if (key == null) {
+                cache.clearLocal();
+            } else {
+                cache.evictLocal(key);
+            }
+        }
+        log.debug("收到缓存失效广播, cache: {}, key: {}", cacheName, key);
+        notifyListeners(cacheName, key);
+    }
+
+    private void notifyListeners(String cacheName, String key) {
+        for (BiConsumer<String, String> listener : evictionListeners) {
+            try {
+                listener.accept(cacheName, key);
+            } catch (Exception e) {
+                log.error("缓存失效监听器执行失败, cache: {}, key: {}", cacheName, key, e);
+            }
+        }
+    }
+}
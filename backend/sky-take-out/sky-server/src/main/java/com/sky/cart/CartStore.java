@@ -0,0 +1,73 @@
+package com.sky.cart;
+
+import com.sky.entity.ShoppingCart;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 购物车存储，每个用户一份，按商品(菜品+口味 或 套餐)保存数量和商品信息
+ */
+public interface CartStore {
+
+    /**
+     * 原子地修改商品数量，修改后不大于0时删除该商品
+     *
+     * @param userId
+     * @param itemKey 商品标识
+     * @param delta   增加的数量，减少时为负数
+     * @return 修改后的数量
+     */
+    long increment(Long userId, String itemKey, long delta);
+
+    /**
+     * 保存商品信息(名称、图片、单价等)，已经存在时不覆盖
+     *
+     * @param userId
+     * @param itemKey
+     * @param item
+     */
+    void putItemIfAbsent(Long userId, String itemKey, ShoppingCart item);
+
+    /**
+     * 查询购物车，数量填入 number
+     *
+     * @param userId
+     * @return
+     */
+    List<ShoppingCart> list(Long userId);
+
+    /**
+     * 删除一个商品(数量和商品信息)
+     *
+     * @param userId
+     * @param itemKey
+     */
+    void remove(Long userId, String itemKey);
+
+    /**
+     * 清空购物车，清空后的购物车仍然存在，不会被 restoreIfAbsent 恢复
+     *
+     * @param userId
+     */
+    void clear(Long userId);
+
+    /**
+     * 购物车是否存在，已清空的购物车也算存在
+     *
+     * @param userId
+     * @return
+     */
+    boolean exists(Long userId);
+
+    /**
+     * 购物车不存在(过期、丢失或从未创建)时用给定的商品恢复，已经存在(包括已清空)时不做任何修改
+     * 检查和恢复是原子的，并发恢复只有一次生效
+     *
+     * @param userId
+     * @param items  商品标识 -> 商品信息，数量取 number
+     * @return 是否恢复
+     */
+    boolean restoreIfAbsent(Long userId, Map<String, ShoppingCart> items);
+
+}
@@ -0,0 +1,101 @@
+package com.sky.cart;
+
+import com.sky.entity.ShoppingCart;
+import org.springframework.beans.BeanUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内存中的购物车，用于开发和测试时替代Redis，不设置过期时间
+ */
+public class InMemoryCartStore implements CartStore {
+
+    private final Map<Long, Cart> carts = new ConcurrentHashMap<>();
+
+    private static class Cart {
+        private final Map<String, Long> quantities = new ConcurrentHashMap<>();
+        private final Map<String, ShoppingCart> items = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public long increment(Long userId, String itemKey, long delta) {
+        Cart cart = carts.computeIfAbsent(userId, id -> new Cart());
+        long[] result = new long[1];
+        // compute 对同一个商品是原子的，数量不大于0时返回null删除
+        cart.quantities.compute(itemKey, (key, number) -> {
+            result[0] = (number == null ? 0 : number) + delta;
+            if (result[0] <= 0) {
+                cart.items.remove(key);
+                return null;
+            }
+            return result[0];
+        });
+        return result[0];
+    }
+
+    @Override
+    public void putItemIfAbsent(Long userId, String itemKey, ShoppingCart item) {
+        carts.computeIfAbsent(userId, id -> new Cart()).items.putIfAbsent(itemKey, item);
+    }
+
+    @Override
+    public List<ShoppingCart> list(Long userId) {
+        Cart cart = carts.get(userId);
+        List<ShoppingCart> list = new ArrayList<>();
+        if (cart == null) {
+            return list;
+        }
+        cart.quantities.forEach((itemKey, number) -> {
+            ShoppingCart item = cart.items.get(itemKey);
+            if (item == null) {
+                return;
+            }
+            ShoppingCart shoppingCart = new ShoppingCart();
+            BeanUtils.copyProperties(item, shoppingCart);
+            shoppingCart.setUserId(userId);
+            shoppingCart.setNumber(number.intValue());
+            list.add(shoppingCart);
+        });
+        list.sort(Comparator.comparing(ShoppingCart::getCreateTime, Comparator.nullsLast(Comparator.naturalOrder())));
+        return list;
+    }
+
+    @Override
+    public void remove(Long userId, String itemKey) {
+        Cart cart = carts.get(userId);
+        if (cart != null) {
+            cart.quantities.remove(itemKey);
+            cart.items.remove(itemKey);
+        }
+    }
+
+    @Override
+    public void clear(Long userId) {
+        // 保留空的购物车，表示购物车存在但已清空
+        carts.put(userId, new Cart());
+    }
+
+    @Override
+    public boolean exists(Long userId) {
+        return carts.containsKey(userId);
+    }
+
+    @Override
+    public boolean restoreIfAbsent(Long userId, Map<String, ShoppingCart> items) {
+        boolean[] restored = new boolean[1];
+        carts.computeIfAbsent(userId, id -> {
+            Cart cart = new Cart();
+            items.forEach((itemKey, item) -> {
+                cart.items.put(itemKey, item);
+                cart.quantities.put(itemKey, item.getNumber().longValue());
+            });
+            restored[0] = true;
+            return cart;
+        });
+        return restored[0];
+    }
+}
@@ -0,0 +1,153 @@
+package com.sky.cart;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.entity.ShoppingCart;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Redis的购物车，每个用户两个hash：
+ * shopping_cart:{userId} 保存 商品标识 -> 数量，用 HINCRBY 原子修改；
+ * shopping_cart_item:{userId} 保存 商品标识 -> 商品信息(json)，只在第一次加入时写入。
+ * key 中用 {userId} 作为hash tag，集群模式下两个key落在同一个slot，脚本可以同时操作。
+ * 清空或恢复购物车时在数量hash中写入一个占位字段，商品全部移除后hash仍然存在，
+ * 以此区分"已清空"和"已过期或丢失"，只有后者才从数据库恢复。
+ */
+public class RedisCartStore implements CartStore {
+
+    private static final String QUANTITY_KEY_PREFIX = "shopping_cart:";
+    private static final String ITEM_KEY_PREFIX = "shopping_cart_item:";
+    // 占位字段，商品标识都以 dish: 或 setmeal: 开头，不会与它冲突
+    private static final String PLACEHOLDER = "_";
+
+    // 删除全部商品，只保留占位字段
+    private static final DefaultRedisScript<Long> CLEAR_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1], KEYS[2])\n" +
+            "redis.call('HSET', KEYS[1], ARGV[1], 1)\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2])\n" +
+            "return 1", Long.class);
+
+    // 数量hash不存在时写入占位字段和全部商品；参数依次为 占位字段、过期时间、(商品标识, 数量, 商品信息)...
+    private static final DefaultRedisScript<Long> RESTORE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then\n" +
+            "  return 0\n" +
+            "end\n" +
+            "redis.call('HSET', KEYS[1], ARGV[1], 1)\n" +
+            "for i = 3, #ARGV, 3 do\n" +
+            "  redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])\n" +
+            "  redis.call('HSET', KEYS[2], ARGV[i], ARGV[i + 2])\n" +
+            "end\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2])\n" +
+            "redis.call('EXPIRE', KEYS[2], ARGV[2])\n" +
+            "return 1", Long.class);
+
+    // 修改数量，不大于0时同时删除数量和商品信息，并刷新过期时间；一次往返，不会和并发的加购交错
+    private static final DefaultRedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "local n = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "if n <= 0 then\n" +
+            "  redis.call('HDEL', KEYS[1], ARGV[1])\n" +
+            "  redis.call('HDEL', KEYS[2], ARGV[1])\n" +
+            "end\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[3])\n" +
+            "redis.call('EXPIRE', KEYS[2], ARGV[3])\n" +
+            "return n", Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final long ttlSeconds;
+
+    public RedisCartStore(StringRedisTemplate stringRedisTemplate, long ttlSeconds) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    @Override
+    public long increment(Long userId, String itemKey, long delta) {
+        Long number = stringRedisTemplate.execute(INCREMENT_SCRIPT,
+                Arrays.asList(quantityKey(userId), itemKey(userId)),
+                itemKey, String.valueOf(delta), String.valueOf(ttlSeconds));
+        return number == null ? 0 : number;
+    }
+
+    @Override
+    public void putItemIfAbsent(Long userId, String itemKey, ShoppingCart item) {
+        String key = itemKey(userId);
+        stringRedisTemplate.opsForHash().putIfAbsent(key, itemKey, JSON.toJSONString(item));
+        stringRedisTemplate.expire(key, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public List<ShoppingCart> list(Long userId) {
+        HashOperations<String, String, String> hashOperations = stringRedisTemplate.opsForHash();
+        Map<String, String> quantities = hashOperations.entries(quantityKey(userId));
+        if (quantities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, String> items = hashOperations.entries(itemKey(userId));
+
+        List<ShoppingCart> list = new ArrayList<>(quantities.size());
+        quantities.forEach((itemKey, number) -> {
+            if (PLACEHOLDER.equals(itemKey)) {
+                return;
+            }
+            String json = items.get(itemKey);
+            // 刚加入、商品信息还没写入的跳过，下次查询就能看到
+            if (json == null) {
+                return;
+            }
+            ShoppingCart shoppingCart = JSON.parseObject(json, ShoppingCart.class);
+            shoppingCart.setUserId(userId);
+            shoppingCart.setNumber(Integer.valueOf(number));
+            list.add(shoppingCart);
+        });
+        list.sort(Comparator.comparing(ShoppingCart::getCreateTime, Comparator.nullsLast(Comparator.naturalOrder())));
+        return list;
+    }
+
+    @Override
+    public void remove(Long userId, String itemKey) {
+        stringRedisTemplate.opsForHash().delete(quantityKey(userId), itemKey);
+        stringRedisTemplate.opsForHash().delete(itemKey(userId), itemKey);
+    }
+
+    @Override
+    public void clear(Long userId) {
+        stringRedisTemplate.execute(CLEAR_SCRIPT, Arrays.asList(quantityKey(userId), itemKey(userId)),
+                PLACEHOLDER, String.valueOf(ttlSeconds));
+    }
+
+    @Override
+    public boolean exists(Long userId) {
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(quantityKey(userId)));
+    }
+
+    @Override
+    public boolean restoreIfAbsent(Long userId, Map<String, ShoppingCart> items) {
+        List<String> args = new ArrayList<>(2 + items.size() * 3);
+        args.add(PLACEHOLDER);
+        args.add(String.valueOf(ttlSeconds));
+        items.forEach((itemKey, item) -> {
+            args.add(itemKey);
+            args.add(String.valueOf(item.getNumber()));
+            args.add(JSON.toJSONString(item));
+        });
+        Long restored = stringRedisTemplate.execute(RESTORE_SCRIPT,
+                Arrays.asList(quantityKey(userId), itemKey(userId)), args.toArray());
+        return restored != null && restored == 1;
+    }
+
+    private static String quantityKey(Long userId) {
+        return QUANTITY_KEY_PREFIX + "{" + userId + "}";
+    }
+
+    private static String itemKey(Long userId) {
+        return ITEM_KEY_PREFIX + "{" + userId + "}";
+    }
+}
@@ -0,0 +1,37 @@
+package com.sky.config;
+
+import com.sky.cache.TwoLevelCacheManager;
+import com.sky.properties.TwoLevelCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 配置两级缓存(本地 + Redis)，并订阅缓存失效广播
+ */
+@Configuration
+@EnableCaching
+@Slf4j
+public class CacheConfiguration {
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(StringRedisTemplate stringRedisTemplate, TwoLevelCacheProperties twoLevelCacheProperties) {
+        log.info("创建两级缓存管理器: {}", twoLevelCacheProperties);
+        return new TwoLevelCacheManager(stringRedisTemplate, twoLevelCacheProperties);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheEvictListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                     TwoLevelCacheManager cacheManager,
+                                                                     TwoLevelCacheProperties twoLevelCacheProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(twoLevelCacheProperties.getEvictChannel()));
+        return container;
+    }
+}
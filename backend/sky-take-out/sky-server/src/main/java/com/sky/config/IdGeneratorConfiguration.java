@@ -0,0 +1,26 @@
+package com.sky.config;
+
+import com.sky.properties.IdGeneratorProperties;
+import com.sky.utils.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 配置类，创建订单主键和订单号使用的id生成器
+ */
+@Configuration
+@Slf4j
+public class IdGeneratorConfiguration {
+
+    @Bean
+    public SnowflakeIdGenerator snowflakeIdGenerator(IdGeneratorProperties idGeneratorProperties) {
+        // 多个实例使用同一个机器id会生成重复的订单id且没有任何报错，所以不提供默认值
+        if (idGeneratorProperties.getWorkerId() == null) {
+            throw new IllegalStateException("未配置 sky.id-generator.worker-id，每个实例必须配置不同的机器id(0 ~ "
+                    + SnowflakeIdGenerator.MAX_WORKER_ID + ")");
+        }
+        log.info("开始创建id生成器, workerId: {}", idGeneratorProperties.getWorkerId());
+        return new SnowflakeIdGenerator(idGeneratorProperties.getWorkerId(), idGeneratorProperties.getEpoch());
+    }
+}
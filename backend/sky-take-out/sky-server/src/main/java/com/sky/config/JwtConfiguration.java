@@ -0,0 +1,28 @@
+package com.sky.config;
+
+import com.sky.properties.JwtProperties;
+import com.sky.utils.JwtCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 配置类，创建管理端和用户端的jwt签发/校验对象
+ * 秘钥和解析器在启动时构造一次，之后登录和拦截器都直接复用
+ */
+@Configuration
+@Slf4j
+public class JwtConfiguration {
+
+    @Bean
+    public JwtCodec adminJwtCodec(JwtProperties jwtProperties) {
+        log.info("开始创建管理端jwt工具类对象...");
+        return new JwtCodec(jwtProperties.getAdminSecretKey(), jwtProperties.getAdminTtl());
+    }
+
+    @Bean
+    public JwtCodec userJwtCodec(JwtProperties jwtProperties) {
+        log.info("开始创建用户端jwt工具类对象...");
+        return new JwtCodec(jwtProperties.getUserSecretKey(), jwtProperties.getUserTtl());
+    }
+}
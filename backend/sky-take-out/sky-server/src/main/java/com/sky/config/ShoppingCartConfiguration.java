@@ -0,0 +1,33 @@
+package com.sky.config;
+
+import com.sky.cart.CartStore;
+import com.sky.cart.InMemoryCartStore;
+import com.sky.cart.RedisCartStore;
+import com.sky.properties.ShoppingCartProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 配置类，按 sky.shopping-cart.store 创建购物车存储
+ */
+@Configuration
+@Slf4j
+public class ShoppingCartConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "sky.shopping-cart", name = "store", havingValue = "redis", matchIfMissing = true)
+    public CartStore redisCartStore(StringRedisTemplate stringRedisTemplate, ShoppingCartProperties shoppingCartProperties) {
+        log.info("购物车保存到Redis");
+        return new RedisCartStore(stringRedisTemplate, shoppingCartProperties.getTtlSeconds());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "sky.shopping-cart", name = "store", havingValue = "memory")
+    public CartStore inMemoryCartStore() {
+        log.info("购物车保存到进程内存");
+        return new InMemoryCartStore();
+    }
+}
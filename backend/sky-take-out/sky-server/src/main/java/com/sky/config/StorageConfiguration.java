@@ -0,0 +1,40 @@
+package com.sky.config;
+
+import com.sky.properties.AliOssProperties;
+import com.sky.properties.StorageProperties;
+import com.sky.storage.AliOssFileStorage;
+import com.sky.storage.FileStorage;
+import com.sky.storage.LocalFileStorage;
+import com.sky.utils.AliOssUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 配置类，按 sky.storage.type 创建文件存储
+ */
+@Configuration
+@Slf4j
+public class StorageConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "sky.storage", name = "type", havingValue = "alioss", matchIfMissing = true)
+    public AliOssUtil aliOssUtil(AliOssProperties aliOssProperties) {
+        log.info("开始创建阿里云文件上传工具类对象: {}", aliOssProperties.getBucketName());
+        return new AliOssUtil(aliOssProperties);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "sky.storage", name = "type", havingValue = "alioss", matchIfMissing = true)
+    public FileStorage aliOssFileStorage(AliOssUtil aliOssUtil) {
+        return new AliOssFileStorage(aliOssUtil);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "sky.storage", name = "type", havingValue = "local")
+    public FileStorage localFileStorage(StorageProperties storageProperties) {
+        log.info("文件保存到本地目录: {}", storageProperties.getLocalDir());
+        return new LocalFileStorage(storageProperties.getLocalDir(), storageProperties.getLocalUrlPrefix());
+    }
+}
@@ -1,7 +1,9 @@
 package com.sky.config;
 
 import com.sky.interceptor.JwtTokenAdminInterceptor;
+import com.sky.interceptor.JwtTokenUserInterceptor;
 import com.sky.json.JacksonObjectMapper;
+import com.sky.properties.StorageProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -18,6 +20,7 @@ import springfox.documentation.service.ApiInfo;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 
+import java.nio.file.Paths;
 import java.util.List;
 
 /**
@@ -30,6 +33,10 @@ public class WebMvcConfiguration extends WebMvcConfigurationSupport {
 
     @Autowired
     private JwtTokenAdminInterceptor jwtTokenAdminInterceptor;
+    @Autowired
+    private JwtTokenUserInterceptor jwtTokenUserInterceptor;
+    @Autowired
+    private StorageProperties storageProperties;
 
     /**
      * 注册自定义拦截器
@@ -41,6 +48,11 @@ public class WebMvcConfiguration extends WebMvcConfigurationSupport {
         registry.addInterceptor(jwtTokenAdminInterceptor)
                 .addPathPatterns("/admin/**")
                 .excludePathPatterns("/admin/employee/login");
+
+        registry.addInterceptor(jwtTokenUserInterceptor)
+                .addPathPatterns("/user/**")
+                .excludePathPatterns("/user/user/login")
+                .excludePathPatterns("/user/shop/status");
     }
 
     /**
@@ -78,6 +90,15 @@ public class WebMvcConfiguration extends WebMvcConfigurationSupport {
         // 接口文档的请求路径就是 localhost:8080/doc.html
         registry.addResourceHandler("/doc.html").addResourceLocations("classpath:/META-INF/resources/");
         registry.addResourceHandler("/webjars/**").addResourceLocations("classpath:/META-INF/resources/webjars/");
+
+        // 文件保存在本地目录时，通过 localUrlPrefix 访问
+        if ("local".equals(storageProperties.getType())) {
+            String location = Paths.get(storageProperties.getLocalDir()).toAbsolutePath().normalize().toUri().toString();
+            if (!location.endsWith("/")) {
+                location = location + "/";
+            }
+            registry.addResourceHandler(storageProperties.getLocalUrlPrefix() + "**").addResourceLocations(location);
+        }
     }
 
     /**
@@ -1,9 +1,11 @@
 package com.sky.controller.admin;
 
 import com.github.pagehelper.Page;
+import com.sky.dto.CategoryCursorQueryDTO;
 import com.sky.dto.CategoryDTO;
 import com.sky.dto.CategoryPageQueryDTO;
 import com.sky.entity.Category;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.CategoryService;
@@ -13,6 +15,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Slf4j
 @RestController
 @Api(tags = "分类相关接口")
@@ -57,6 +61,21 @@ public class CategoryController {
         return Result.success(pageResult);
     }
 
+    /**
+     * 游标分页查询类别，翻页深度不影响查询速度
+     * @param categoryCursorQueryDTO
+     * @return
+     */
+    @GetMapping("/cursor")
+    @ApiOperation("游标分页查询类别")
+    public Result<CursorPageResult> cursorPage(CategoryCursorQueryDTO categoryCursorQueryDTO) {
+        log.info("游标分页查询类别, categoryCursorQueryDTO = {}", categoryCursorQueryDTO);
+
+        CursorPageResult cursorPageResult = categoryService.cursorPage(categoryCursorQueryDTO);
+
+        return Result.success(cursorPageResult);
+    }
+
     /**
      *  启用，禁用分类
      *  Query 参数如何获取呢？
@@ -106,4 +125,19 @@ public class CategoryController {
 
         return Result.success();
     }
+
+    /**
+     * 根据类型查询启用的分类
+     * @param type
+     * @return
+     */
+    @GetMapping("/list")
+    @ApiOperation("根据类型查询分类")
+    public Result<List<Category>> list(Integer type) {
+        log.info("根据类型查询分类: type = {}", type);
+
+        List<Category> list = categoryService.list(type);
+
+        return Result.success(list);
+    }
 }
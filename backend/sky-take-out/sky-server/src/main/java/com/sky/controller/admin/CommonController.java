@@ -0,0 +1,53 @@
+package com.sky.controller.admin;
+
+import com.sky.result.Result;
+import com.sky.service.UploadService;
+import com.sky.vo.ImageUploadVO;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 通用接口
+ */
+@RestController
+@RequestMapping("/admin/common")
+@Slf4j
+@Api(tags = "通用接口")
+public class CommonController {
+
+    @Autowired
+    private UploadService uploadService;
+
+    /**
+     * 文件上传
+     * 上传在单独的线程池中执行，不占用请求线程；上传失败时由全局异常处理器返回错误信息
+     * @param file
+     * @return
+     */
+    @PostMapping("/upload")
+    @ApiOperation("文件上传")
+    public CompletableFuture<Result<String>> upload(MultipartFile file) {
+        log.info("文件上传: {}, size: {}", file.getOriginalFilename(), file.getSize());
+        return uploadService.upload(file).thenApply(Result::success);
+    }
+
+    /**
+     * 图片上传，返回原图以及缩略图、列表图、详情图的访问路径
+     * @param file
+     * @return
+     */
+    @PostMapping("/upload/image")
+    @ApiOperation("图片上传")
+    public CompletableFuture<Result<ImageUploadVO>> uploadImage(MultipartFile file) {
+        log.info("图片上传: {}, size: {}", file.getOriginalFilename(), file.getSize());
+        return uploadService.uploadImage(file).thenApply(Result::success);
+    }
+}
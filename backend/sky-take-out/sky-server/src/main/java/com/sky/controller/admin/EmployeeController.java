@@ -5,11 +5,11 @@ import com.sky.dto.EmployeeDTO;
 import com.sky.dto.EmployeeLoginDTO;
 import com.sky.dto.EmployeePageQueryDTO;
 import com.sky.entity.Employee;
-import com.sky.properties.JwtProperties;
+import com.sky.limiter.LoginAttemptLimiter;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
 import com.sky.service.EmployeeService;
-import com.sky.utils.JwtUtil;
+import com.sky.utils.JwtCodec;
 import com.sky.vo.EmployeeLoginVO;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -17,6 +17,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,27 +33,28 @@ public class EmployeeController {
     @Autowired
     private EmployeeService employeeService;
     @Autowired
-    private JwtProperties jwtProperties;
+    private JwtCodec adminJwtCodec;
+    @Autowired
+    private LoginAttemptLimiter loginAttemptLimiter;
 
     /**
      * 登录
      * @param employeeLoginDTO
+     * @param request
      * @return
      */
     @PostMapping("/login")
     @ApiOperation(value = "员工登录")   // 效果会取代swagger中的login这样的接口方法，直接显示员工登录
-    public Result<EmployeeLoginVO> login(@RequestBody EmployeeLoginDTO employeeLoginDTO) {
+    public Result<EmployeeLoginVO> login(@RequestBody EmployeeLoginDTO employeeLoginDTO, HttpServletRequest request) {
         log.info("员工登录：{}", employeeLoginDTO);
 
-        Employee employee = employeeService.login(employeeLoginDTO);
+        String clientIp = loginAttemptLimiter.resolveClientIp(request);
+        Employee employee = employeeService.login(employeeLoginDTO, clientIp);
 
         //登录成功后，生成jwt令牌, 避免访问其他页面也需要登录
         Map<String, Object> claims = new HashMap<>();
         claims.put(JwtClaimsConstant.EMP_ID, employee.getId());
-        String token = JwtUtil.createJWT(
-                jwtProperties.getAdminSecretKey(),
-                jwtProperties.getAdminTtl(),
-                claims);
+        String token = adminJwtCodec.sign(claims);
 
         EmployeeLoginVO employeeLoginVO = EmployeeLoginVO.builder()
                 .id(employee.getId())
@@ -0,0 +1,112 @@
+package com.sky.controller.admin;
+
+import com.sky.cache.CategoryCache;
+import com.sky.cache.JwtTokenCache;
+import com.sky.cache.TwoLevelCacheManager;
+import com.sky.limiter.LoginAttemptLimiter;
+import com.sky.properties.LoginLimitProperties;
+import com.sky.result.Result;
+import com.sky.utils.HttpClientUtil;
+import com.sky.vo.CacheStatsVO;
+import com.sky.vo.HttpPoolStatsVO;
+import com.sky.vo.LoginLimiterStatsVO;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 运行指标
+ */
+@RestController
+@RequestMapping("/admin/metrics")
+@Slf4j
+@Api(tags = "运行指标相关接口")
+public class MetricsController {
+
+    @Autowired
+    private LoginAttemptLimiter loginAttemptLimiter;
+    @Autowired
+    private LoginLimitProperties loginLimitProperties;
+    @Autowired
+    private CategoryCache categoryCache;
+    @Autowired
+    private TwoLevelCacheManager twoLevelCacheManager;
+    @Autowired
+    private JwtTokenCache jwtTokenCache;
+
+    /**
+     * 登录失败限流统计
+     * @return
+     */
+    @GetMapping("/login-limiter")
+    @ApiOperation("登录失败限流统计")
+    public Result<LoginLimiterStatsVO> loginLimiter() {
+        LoginLimiterStatsVO loginLimiterStatsVO = LoginLimiterStatsVO.builder()
+                .enabled(loginLimitProperties.isEnabled())
+                .blockedByUsername(loginAttemptLimiter.getBlockedByUsername())
+                .blockedByIp(loginAttemptLimiter.getBlockedByIp())
+                .build();
+        return Result.success(loginLimiterStatsVO);
+    }
+
+    /**
+     * 分类缓存统计
+     * @return
+     */
+    @GetMapping("/category-cache")
+    @ApiOperation("分类缓存统计")
+    public Result<CacheStatsVO> categoryCache() {
+        return Result.success(categoryCache.stats());
+    }
+
+    /**
+     * 菜单两级缓存统计
+     * @return
+     */
+    @GetMapping("/menu-cache")
+    @ApiOperation("菜单两级缓存统计")
+    public Result<List<CacheStatsVO>> menuCache() {
+        return Result.success(twoLevelCacheManager.stats());
+    }
+
+    /**
+     * 管理端令牌缓存统计
+     * @return
+     */
+    @GetMapping("/jwt-token-cache")
+    @ApiOperation("管理端令牌缓存统计")
+    public Result<CacheStatsVO> jwtTokenCache() {
+        return Result.success(jwtTokenCache.stats());
+    }
+
+    /**
+     * http连接池统计
+     * @return
+     */
+    @GetMapping("/http-pool")
+    @ApiOperation("http连接池统计")
+    public Result<HttpPoolStatsVO> httpPool() {
+        PoolStats poolStats = HttpClientUtil.getPoolStats();
+        long leaseCount = HttpClientUtil.getLeaseCount();
+        // 累计等待时间包含超时的租用，平均值按全部租用次数计算
+        long leaseAttemptCount = HttpClientUtil.getLeaseAttemptCount();
+        HttpPoolStatsVO httpPoolStatsVO = HttpPoolStatsVO.builder()
+                .leased(poolStats.getLeased())
+                .pending(poolStats.getPending())
+                .available(poolStats.getAvailable())
+                .max(poolStats.getMax())
+                .leaseCount(leaseCount)
+                .leaseTimeoutCount(HttpClientUtil.getLeaseTimeoutCount())
+                .avgLeaseWaitMillis(leaseAttemptCount == 0 ? 0 : (double) HttpClientUtil.getTotalLeaseWaitMillis() / leaseAttemptCount)
+                .maxLeaseWaitMillis(HttpClientUtil.getMaxLeaseWaitMillis())
+                .build();
+        return Result.success(httpPoolStatsVO);
+    }
+}
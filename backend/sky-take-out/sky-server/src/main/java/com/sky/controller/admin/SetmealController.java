@@ -0,0 +1,48 @@
+package com.sky.controller.admin;
+
+import com.sky.result.Result;
+import com.sky.service.SetmealService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController("adminSetmealController")
+@RequestMapping("/admin/setmeal")
+@Slf4j
+@Api(tags = "套餐相关接口")
+public class SetmealController {
+
+    @Autowired
+    private SetmealService setmealService;
+
+    /**
+     * 批量起售、停售套餐
+     * @param status
+     * @param ids
+     * @return
+     */
+    @PostMapping("/status/{status}")
+    @ApiOperation("批量起售、停售套餐")
+    public Result startOrStop(@PathVariable Integer status, @RequestParam List<Long> ids) {
+        log.info("批量起售、停售套餐: {}, {}", status, ids);
+        setmealService.startOrStop(status, ids);
+        return Result.success();
+    }
+
+    /**
+     * 批量删除套餐
+     * @param ids
+     * @return
+     */
+    @DeleteMapping
+    @ApiOperation("批量删除套餐")
+    public Result delete(@RequestParam List<Long> ids) {
+        log.info("批量删除套餐: {}", ids);
+        setmealService.deleteBatch(ids);
+        return Result.success();
+    }
+}
@@ -0,0 +1,70 @@
+package com.sky.controller.common;
+
+import com.sky.storage.ImageDiskCache;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 图片代理，从本地缓存返回上传的图片
+ */
+@RestController
+@RequestMapping("/common/image")
+@Slf4j
+@Api(tags = "图片代理接口")
+public class ImageController {
+
+    @Autowired
+    private ImageDiskCache imageDiskCache;
+
+    /**
+     * 获取图片
+     * 文件名就是内容的摘要，内容不会变化，响应允许浏览器和CDN长期缓存
+     * @param name
+     * @param request
+     * @param response
+     */
+    @GetMapping("/{name:.+}")
+    @ApiOperation("获取图片")
+    public void get(@PathVariable String name, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!imageDiskCache.isEnabled() || !imageDiskCache.isValidName(name)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String etag = "\"" + name + "\"";
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "public, max-age=31536000, immutable");
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        ByteBuffer buffer = imageDiskCache.get(name);
+        if (buffer == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String contentType = URLConnection.guessContentTypeFromName(name);
+        response.setContentType(contentType != null ? contentType : "application/octet-stream");
+        response.setContentLengthLong(buffer.remaining());
+        WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.sky.controller.notify;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.sky.properties.WeChatProperties;
+import com.sky.service.OrderService;
+import com.wechat.pay.contrib.apache.httpclient.util.AesUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 支付回调相关接口
+ */
+@RestController
+@RequestMapping("/notify")
+@Slf4j
+public class PayNotifyController {
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private WeChatProperties weChatProperties;
+
+    /**
+     * 支付成功回调
+     * 处理成功时应答 SUCCESS；处理失败时应答 FAIL，微信会稍后重新通知
+     * @param request
+     * @param response
+     */
+    @RequestMapping("/paySuccess")
+    public void paySuccessNotify(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try {
+            String body = readData(request);
+            String plainText = decryptData(body);
+            log.info("支付成功回调: {}", plainText);
+
+            JSONObject jsonObject = JSON.parseObject(plainText);
+            String outTradeNo = jsonObject.getString("out_trade_no");
+            orderService.paySuccess(outTradeNo);
+        } catch (Exception e) {
+            log.error("支付成功回调处理失败", e);
+            responseToWeixin(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "FAIL", e.getMessage());
+            return;
+        }
+        responseToWeixin(response, HttpServletResponse.SC_OK, "SUCCESS", "SUCCESS");
+    }
+
+    private String readData(HttpServletRequest request) throws IOException {
+        BufferedReader reader = request.getReader();
+        StringBuilder result = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            result.append(line);
+        }
+        return result.toString();
+    }
+
+    private String decryptData(String body) throws Exception {
+        JSONObject resource = JSON.parseObject(body).getJSONObject("resource");
+        AesUtil aesUtil = new AesUtil(weChatProperties.getApiV3Key().getBytes(StandardCharsets.UTF_8));
+        return aesUtil.decryptToString(resource.getString("associated_data").getBytes(StandardCharsets.UTF_8),
+                resource.getString("nonce").getBytes(StandardCharsets.UTF_8),
+                resource.getString("ciphertext"));
+    }
+
+    private void responseToWeixin(HttpServletResponse response, int status, String code, String message) throws IOException {
+        JSONObject result = new JSONObject();
+        result.put("code", code);
+        result.put("message", message);
+        response.setStatus(status);
+        response.setHeader("Content-Type", "application/json");
+        response.getOutputStream().write(result.toJSONString().getBytes(StandardCharsets.UTF_8));
+        response.flushBuffer();
+    }
+}
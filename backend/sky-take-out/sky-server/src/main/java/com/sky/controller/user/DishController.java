@@ -0,0 +1,48 @@
+package com.sky.controller.user;
+
+import com.sky.cache.MenuSnapshotCache;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@RestController("userDishController")
+@RequestMapping("/user/dish")
+@Slf4j
+@Api(tags = "C端菜品浏览接口")
+public class DishController {
+
+    @Autowired
+    private MenuSnapshotCache menuSnapshotCache;
+
+    /**
+     * 根据分类id查询菜品
+     * 直接写出菜单快照中预先序列化好的 JSON，内容没有变化时返回 304
+     * @param categoryId
+     * @param request
+     * @param response
+     */
+    @GetMapping("/list")
+    @ApiOperation("根据分类id查询菜品")
+    public void list(@RequestParam Long categoryId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        MenuSnapshotCache.Snapshot snapshot = menuSnapshotCache.get(categoryId);
+        response.setHeader("Cache-Control", "no-cache");
+        // 由 Spring 解析 If-None-Match，支持弱校验 W/"..."、逗号分隔的多个值和 *，同时写入 ETag 响应头
+        if (new ServletWebRequest(request, response).checkNotModified(snapshot.getDishEtag())) {
+            return;
+        }
+        byte[] body = snapshot.getDishBody();
+        response.setContentType("application/json;charset=UTF-8");
+        response.setContentLengthLong(body.length);
+        response.getOutputStream().write(body);
+    }
+}
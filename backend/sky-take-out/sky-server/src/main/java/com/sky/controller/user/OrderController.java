@@ -0,0 +1,72 @@
+package com.sky.controller.user;
+
+import com.sky.context.BaseContext;
+import com.sky.dto.OrdersPaymentDTO;
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.idempotency.IdempotencyTemplate;
+import com.sky.properties.IdempotencyProperties;
+import com.sky.result.Result;
+import com.sky.service.OrderService;
+import com.sky.vo.OrderPaymentVO;
+import com.sky.vo.OrderSubmitVO;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+
+@RestController("userOrderController")
+@RequestMapping("/user/order")
+@Slf4j
+@Api(tags = "C端订单相关接口")
+public class OrderController {
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private IdempotencyTemplate idempotencyTemplate;
+    @Autowired
+    private IdempotencyProperties idempotencyProperties;
+
+    /**
+     * 用户下单
+     * 请求头带幂等键时，客户端重试的重复请求直接返回第一次下单的结果，不会重复创建订单；
+     * 幂等判断放在事务之外，只有提交成功的结果才会被缓存
+     * @param ordersSubmitDTO
+     * @param request
+     * @return
+     */
+    @PostMapping("/submit")
+    @ApiOperation("用户下单")
+    public Result<OrderSubmitVO> submit(@RequestBody OrdersSubmitDTO ordersSubmitDTO, HttpServletRequest request) {
+        log.info("用户下单: {}", ordersSubmitDTO);
+        String idempotencyKey = request.getHeader(idempotencyProperties.getHeaderName());
+        OrderSubmitVO orderSubmitVO;
+        if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+            orderSubmitVO = orderService.submitOrder(ordersSubmitDTO);
+        } else {
+            String key = "submit:" + BaseContext.getCurrentId() + ":" + idempotencyKey;
+            orderSubmitVO = idempotencyTemplate.execute(key, OrderSubmitVO.class, () -> orderService.submitOrder(ordersSubmitDTO));
+        }
+        return Result.success(orderSubmitVO);
+    }
+
+    /**
+     * 订单支付
+     * @param ordersPaymentDTO
+     * @return
+     */
+    @PutMapping("/payment")
+    @ApiOperation("订单支付")
+    public Result<OrderPaymentVO> payment(@RequestBody OrdersPaymentDTO ordersPaymentDTO) {
+        log.info("订单支付: {}", ordersPaymentDTO);
+        OrderPaymentVO orderPaymentVO = orderService.payment(ordersPaymentDTO);
+        return Result.success(orderPaymentVO);
+    }
+}
@@ -0,0 +1,163 @@
+package com.sky.idempotency;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.cache.ExpiringCache;
+import com.sky.constant.MessageConstant;
+import com.sky.exception.DuplicateRequestException;
+import com.sky.properties.IdempotencyProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 幂等执行：同一个幂等键只真正执行一次，重复请求直接返回第一次的结果
+ * 1. 本地缓存：保存本实例处理过的结果，命中时不访问Redis；
+ * 2. 本实例正在处理的相同请求：等待同一次执行的结果；
+ * 3. Redis：SET NX 抢占处理权，处理完成后保存结果，其他实例的重复请求读到结果直接返回，
+ *    读到处理中标记时提示请勿重复提交。
+ * 执行失败不保存结果，删除处理中标记，客户端可以用同一个幂等键重试。
+ * Redis 不可用时退化为只在本实例内去重。
+ */
+@Component
+@Slf4j
+public class IdempotencyTemplate {
+
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final String PENDING = "PENDING";
+
+    @Autowired
+    private IdempotencyProperties idempotencyProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private ExpiringCache<String, Object> results;
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        results = new ExpiringCache<>(idempotencyProperties.getLocalMaxSize());
+    }
+
+    /**
+     * 幂等执行
+     *
+     * @param key    幂等键，调用方负责加上用户和业务前缀
+     * @param type   结果类型，用于从Redis反序列化
+     * @param action 真正的处理逻辑
+     * @return
+     */
+    public <T> T execute(String key, Class<T> type, Supplier<T> action) {
+        return execute(key, type, idempotencyProperties.getResultTtlSeconds(), action);
+    }
+
+    /**
+     * 幂等执行，结果按指定的时长保留，用于结果本身会过期的业务(例如预支付交易单)
+     *
+     * @param key              幂等键，调用方负责加上用户和业务前缀
+     * @param type             结果类型，用于从Redis反序列化
+     * @param resultTtlSeconds 结果保留的时长，不应超过结果本身的有效期
+     * @param action           真正的处理逻辑
+     * @return
+     */
+    public <T> T execute(String key, Class<T> type, long resultTtlSeconds, Supplier<T> action) {
+        Object cached = results.get(key);
+        if (cached != null) {
+            log.info("重复请求，返回已缓存的结果: {}", key);
+            return type.cast(cached);
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            log.info("相同请求正在处理，等待其结果: {}", key);
+            return type.cast(join(existing));
+        }
+
+        try {
+            T result = executeOnce(key, type, resultTtlSeconds, action);
+            results.put(key, result, System.currentTimeMillis() + resultTtlSeconds * 1000);
+            future.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private <T> T executeOnce(String key, Class<T> type, long resultTtlSeconds, Supplier<T> action) {
+        String redisKey = KEY_PREFIX + key;
+        boolean claimed = false;
+        if (idempotencyProperties.isRedisEnabled()) {
+            try {
+                Boolean absent = stringRedisTemplate.opsForValue()
+                        .setIfAbsent(redisKey, PENDING, idempotencyProperties.getPendingTtlSeconds(), TimeUnit.SECONDS);
+                if (Boolean.TRUE.equals(absent)) {
+                    claimed = true;
+                } else {
+                    String value = stringRedisTemplate.opsForValue().get(redisKey);
+                    if (PENDING.equals(value)) {
+                        throw new DuplicateRequestException(MessageConstant.REQUEST_IN_PROGRESS);
+                    }
+                    if (value != null) {
+                        log.info("重复请求，返回其他实例保存的结果: {}", key);
+                        return JSON.parseObject(value, type);
+                    }
+                    // 结果刚好过期，当作新请求处理
+                }
+            } catch (DuplicateRequestException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                log.warn("访问Redis失败，只在本实例内去重: {}", key, e);
+            }
+        }
+
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            if (claimed) {
+                deleteQuietly(redisKey);
+            }
+            throw e;
+        }
+
+        if (claimed) {
+            try {
+                stringRedisTemplate.opsForValue().set(redisKey, JSON.toJSONString(result),
+                        resultTtlSeconds, TimeUnit.SECONDS);
+            } catch (RuntimeException e) {
+                log.warn("保存幂等结果到Redis失败: {}", key, e);
+            }
+        }
+        return result;
+    }
+
+    private void deleteQuietly(String redisKey) {
+        try {
+            stringRedisTemplate.delete(redisKey);
+        } catch (RuntimeException e) {
+            log.warn("删除幂等处理中标记失败: {}", redisKey, e);
+        }
+    }
+
+    private static Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
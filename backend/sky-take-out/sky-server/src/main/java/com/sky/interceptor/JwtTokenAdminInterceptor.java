@@ -1,10 +1,11 @@
 package com.sky.interceptor;
 
 import com.fasterxml.jackson.databind.ser.Serializers;
+import com.sky.cache.JwtTokenCache;
 import com.sky.constant.JwtClaimsConstant;
 import com.sky.context.BaseContext;
 import com.sky.properties.JwtProperties;
-import com.sky.utils.JwtUtil;
+import com.sky.utils.JwtCodec;
 import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +25,12 @@ public class JwtTokenAdminInterceptor implements HandlerInterceptor {
     @Autowired
     private JwtProperties jwtProperties;
 
+    @Autowired
+    private JwtCodec adminJwtCodec;
+
+    @Autowired
+    private JwtTokenCache jwtTokenCache;
+
     /**
      * 校验jwt
      *
@@ -34,10 +41,6 @@ public class JwtTokenAdminInterceptor implements HandlerInterceptor {
      * @throws Exception
      */
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
-        // 输出拦截器的线程 id
-        System.out.println("Jwt 拦截器线程id: " + Thread.currentThread().getId());
-
-
         //判断当前拦截到的是Controller的方法还是其他资源
         if (!(handler instanceof HandlerMethod)) {
             //当前拦截到的不是动态方法，直接放行
@@ -50,8 +53,13 @@ public class JwtTokenAdminInterceptor implements HandlerInterceptor {
         //2、校验令牌
         try {
             log.info("jwt校验:{}", token);
-            Claims claims = JwtUtil.parseJWT(jwtProperties.getAdminSecretKey(), token);
-            Long empId = Long.valueOf(claims.get(JwtClaimsConstant.EMP_ID).toString()); // 解析emp id
+            // 先查已校验令牌缓存，命中就不用再验签和解析
+            Long empId = jwtTokenCache.getEmpId(token);
+            if (empId == null) {
+                Claims claims = adminJwtCodec.verify(token);
+                empId = Long.valueOf(claims.get(JwtClaimsConstant.EMP_ID).toString()); // 解析emp id
+                jwtTokenCache.put(token, empId, claims.getExpiration());
+            }
             log.info("当前员工id = {}", empId);
 
             // 存入 ThreadLocal 存储空间
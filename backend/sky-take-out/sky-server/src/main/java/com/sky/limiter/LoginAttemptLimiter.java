@@ -0,0 +1,114 @@
+package com.sky.limiter;
+
+import com.sky.constant.MessageConstant;
+import com.sky.exception.LoginFailedException;
+import com.sky.properties.LoginLimitProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 登录失败限流
+ * 按用户名和ip分别统计滑动窗口内的登录失败次数，超过阈值的请求在查询数据库之前就被拒绝，
+ * 避免撞库流量占满数据库连接池，影响正常的管理端请求。
+ */
+@Component
+@Slf4j
+public class LoginAttemptLimiter {
+
+    @Autowired
+    private LoginLimitProperties loginLimitProperties;
+
+    private StripedSlidingWindowCounter usernameFailures;
+    private StripedSlidingWindowCounter ipFailures;
+
+    private final LongAdder blockedByUsername = new LongAdder();
+    private final LongAdder blockedByIp = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        usernameFailures = new StripedSlidingWindowCounter(loginLimitProperties.getStripes(),
+                loginLimitProperties.getWindowMillis(), loginLimitProperties.getBuckets());
+        ipFailures = new StripedSlidingWindowCounter(loginLimitProperties.getStripes(),
+                loginLimitProperties.getWindowMillis(), loginLimitProperties.getBuckets());
+    }
+
+    /**
+     * 检查是否允许登录，失败次数过多直接抛出异常
+     * @param username
+     * @param clientIp
+     */
+    public void checkAllowed(String username, String clientIp) {
+        if (!loginLimitProperties.isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (clientIp != null && ipFailures.count(clientIp, now) >= loginLimitProperties.getMaxFailuresPerIp()) {
+            blockedByIp.increment();
+            log.warn("登录失败次数过多，拒绝ip: {}", clientIp);
+            throw new LoginFailedException(MessageConstant.LOGIN_TOO_FREQUENT);
+        }
+        if (username != null && usernameFailures.count(username, now) >= loginLimitProperties.getMaxFailuresPerUsername()) {
+            blockedByUsername.increment();
+            log.warn("登录失败次数过多，拒绝用户名: {}", username);
+            throw new LoginFailedException(MessageConstant.LOGIN_TOO_FREQUENT);
+        }
+    }
+
+    /**
+     * 记录一次登录失败
+     * @param username
+     * @param clientIp
+     */
+    public void recordFailure(String username, String clientIp) {
+        if (!loginLimitProperties.isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (username != null) {
+            usernameFailures.increment(username, now);
+        }
+        if (clientIp != null) {
+            ipFailures.increment(clientIp, now);
+        }
+    }
+
+    /**
+     * 登录成功后清空该用户名的失败次数
+     * @param username
+     */
+    public void recordSuccess(String username) {
+        if (loginLimitProperties.isEnabled() && username != null) {
+            usernameFailures.reset(username);
+        }
+    }
+
+    /**
+     * 获取客户端ip，配置了代理请求头时优先使用请求头中的第一个地址
+     * @param request
+     * @return
+     */
+    public String resolveClientIp(HttpServletRequest request) {
+        String header = loginLimitProperties.getClientIpHeader();
+        if (header != null && !header.isEmpty()) {
+            String value = request.getHeader(header);
+            if (value != null && !value.isEmpty()) {
+                int comma = value.indexOf(',');
+                return (comma < 0 ? value : value.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    public long getBlockedByUsername() {
+        return blockedByUsername.sum();
+    }
+
+    public long getBlockedByIp() {
+        return blockedByIp.sum();
+    }
+}
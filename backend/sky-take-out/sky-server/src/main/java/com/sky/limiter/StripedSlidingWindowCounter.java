@@ -0,0 +1,134 @@
+package com.sky.limiter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分段滑动窗口计数器
+ * 键按哈希值映射到固定数量的分段上，每个分段把时间窗口切成若干个时间桶，
+ * 每个时间桶用一个 long 同时保存桶的时间编号、写入键的指纹和计数，通过 CAS 更新，不需要加锁。
+ * 过期的时间桶在下次写入时被直接覆盖，所以不需要额外的清理线程，内存占用也与键的数量无关。
+ * 不同的键可能落在同一个分段上，计数结果只会偏大，适合做限流这类"宁可多拦"的场景。
+ * 同一个时间桶被不同指纹的键写入过时标记为共享，清空计数时只清空指纹相同的时间桶，
+ * 不会把落在同一分段上的其他键的计数一起清掉。
+ */
+public class StripedSlidingWindowCounter {
+
+    // 低20位保存计数，中间12位保存键的指纹，高32位保存时间桶编号(取低32位，回绕周期远大于窗口)
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int FINGERPRINT_BITS = 12;
+    private static final long FINGERPRINT_MASK = (1L << FINGERPRINT_BITS) - 1;
+    private static final int EPOCH_SHIFT = COUNT_BITS + FINGERPRINT_BITS;
+    private static final long EPOCH_MASK = 0xFFFFFFFFL;
+    // 被多个键写入过的时间桶的指纹，键自身的指纹不会是这个值
+    private static final long SHARED = 0;
+
+    private final int stripeMask;
+    private final int bucketCount;
+    private final long bucketMillis;
+    private final AtomicLongArray cells;
+
+    /**
+     * @param stripes 分段数量，会向上取整为2的幂
+     * @param windowMillis 滑动窗口长度(毫秒)
+     * @param bucketCount 窗口切分的时间桶数量
+     */
+    public StripedSlidingWindowCounter(int stripes, long windowMillis, int bucketCount) {
+        int size = Integer.highestOneBit(Math.max(stripes - 1, 1)) << 1;
+        this.stripeMask = size - 1;
+        this.bucketCount = bucketCount;
+        this.bucketMillis = Math.max(windowMillis / bucketCount, 1);
+        this.cells = new AtomicLongArray(size * bucketCount);
+    }
+
+    /**
+     * 计数加一，并返回加一之后窗口内的计数
+     * @param key
+     * @param now
+     * @return
+     */
+    public int increment(String key, long now) {
+        int base = base(key);
+        long fingerprint = fingerprint(key);
+        long epoch = now / bucketMillis;
+        int index = base + (int) (epoch % bucketCount);
+        while (true) {
+            long current = cells.get(index);
+            long next;
+            if ((current >>> EPOCH_SHIFT) == (epoch & EPOCH_MASK)) {
+                // 同一个时间桶内累加，计数达到上限后不再增加；其他键写入过的时间桶标记为共享
+                long count = current & COUNT_MASK;
+                long owner = fingerprint(current) == fingerprint ? fingerprint : SHARED;
+                next = cell(epoch, owner, count == COUNT_MASK ? count : count + 1);
+            } else {
+                // 时间桶已过期，直接覆盖为新的时间桶
+                next = cell(epoch, fingerprint, 1);
+            }
+            if (cells.compareAndSet(index, current, next)) {
+                break;
+            }
+        }
+        return sum(base, epoch);
+    }
+
+    /**
+     * 查询窗口内的计数
+     * @param key
+     * @param now
+     * @return
+     */
+    public int count(String key, long now) {
+        return sum(base(key), now / bucketMillis);
+    }
+
+    /**
+     * 清空键的计数，只清空由这个键单独写入的时间桶，共享的时间桶保留
+     * @param key
+     */
+    public void reset(String key) {
+        int base = base(key);
+        long fingerprint = fingerprint(key);
+        for (int i = 0; i < bucketCount; i++) {
+            int index = base + i;
+            long current = cells.get(index);
+            // 期间被其他键写入时 CAS 失败，保留计数
+            if (fingerprint(current) == fingerprint) {
+                cells.compareAndSet(index, current, 0);
+            }
+        }
+    }
+
+    private int sum(int base, long epoch) {
+        long total = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            long cell = cells.get(base + i);
+            // 只统计窗口范围内的时间桶
+            if (((epoch - (cell >>> EPOCH_SHIFT)) & EPOCH_MASK) < bucketCount) {
+                total += cell & COUNT_MASK;
+            }
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    private static long cell(long epoch, long fingerprint, long count) {
+        return ((epoch & EPOCH_MASK) << EPOCH_SHIFT) | (fingerprint << COUNT_BITS) | count;
+    }
+
+    private static long fingerprint(long cell) {
+        return (cell >>> COUNT_BITS) & FINGERPRINT_MASK;
+    }
+
+    /**
+     * 键的指纹，与分段使用不同的哈希位，落在同一分段的键大多指纹不同
+     */
+    private static long fingerprint(String key) {
+        long fingerprint = ((key.hashCode() * 0x9E3779B9L) >>> 20) & FINGERPRINT_MASK;
+        return fingerprint == SHARED ? 1 : fingerprint;
+    }
+
+    private int base(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return (h & stripeMask) * bucketCount;
+    }
+}
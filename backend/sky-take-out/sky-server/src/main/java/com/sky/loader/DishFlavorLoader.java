@@ -0,0 +1,60 @@
+package com.sky.loader;
+
+import com.sky.entity.DishFlavor;
+import com.sky.mapper.DishFlavorMapper;
+import com.sky.vo.DishVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 菜品口味批量加载
+ * 先收集一批菜品的id，用 WHERE dish_id IN (...) 一次查出全部口味，在内存中按菜品分组后填充，
+ * 查询次数与菜品数量无关；id 很多时按固定大小分批查询，避免 IN 列表过长。
+ */
+@Component
+public class DishFlavorLoader {
+
+    // 一次 IN 查询最多的菜品数
+    private static final int MAX_IN_SIZE = 1000;
+
+    @Autowired
+    private DishFlavorMapper dishFlavorMapper;
+
+    /**
+     * 查询多个菜品的口味，按菜品id分组
+     * @param dishIds
+     * @return 没有口味的菜品不在结果中
+     */
+    public Map<Long, List<DishFlavor>> loadByDishIds(Collection<Long> dishIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(dishIds));
+        List<DishFlavor> flavors = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += MAX_IN_SIZE) {
+            flavors.addAll(dishFlavorMapper.listByDishIds(ids.subList(from, Math.min(from + MAX_IN_SIZE, ids.size()))));
+        }
+        return flavors.stream().collect(Collectors.groupingBy(DishFlavor::getDishId));
+    }
+
+    /**
+     * 为一批 DishVO 填充口味
+     * @param dishVOs
+     */
+    public void fill(List<DishVO> dishVOs) {
+        if (dishVOs.isEmpty()) {
+            return;
+        }
+        Set<Long> dishIds = dishVOs.stream().map(DishVO::getId).collect(Collectors.toSet());
+        Map<Long, List<DishFlavor>> flavors = loadByDishIds(dishIds);
+        for (DishVO dishVO : dishVOs) {
+            List<DishFlavor> list = flavors.get(dishVO.getId());
+            dishVO.setFlavors(list != null ? list : new ArrayList<>());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.sky.mapper;
+
+import com.sky.entity.AddressBook;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+@Mapper
+public interface AddressBookMapper {
+
+    /**
+     * 根据主键查询地址
+     * @param id
+     * @return
+     */
+    @Select("SELECT * FROM address_book WHERE id = #{id}")
+    AddressBook getById(Long id);
+
+}
@@ -1,9 +1,9 @@
 package com.sky.mapper;
 
-import com.sky.dto.CategoryPageQueryDTO;
 import com.sky.entity.Category;
 import org.apache.ibatis.annotations.*;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -19,20 +19,40 @@ public interface CategoryMapper {
 
     /**
      * 分页查询
+     * ids 不为空时按主键过滤(由名称索引查出)，否则按名称模糊匹配
      * @param pageStart
      * @param pageSize
      * @param name
      * @param type
+     * @param ids
      * @return
      */
-    List<Category> queryByPage(@Param("pageStart") int pageStart, @Param("pageSize") int pageSize, @Param("name") String name, @Param("type") Integer type);
+    List<Category> queryByPage(@Param("pageStart") int pageStart, @Param("pageSize") int pageSize, @Param("name") String name, @Param("type") Integer type,
+                               @Param("ids") Collection<Long> ids);
+
+    /**
+     * 游标分页查询，按 (sort, id) 排序，从游标位置之后开始取
+     * 依赖 category 表上 (sort, id) 的索引，查询代价与翻到第几页无关
+     * sort 为 NULL 的记录排在最前面
+     * @param afterSort 上一页最后一条记录的sort，查询第一页或者该记录的sort为空时为 null
+     * @param afterId 上一页最后一条记录的id，查询第一页时为 null
+     * @param limit
+     * @param name
+     * @param type
+     * @param ids
+     * @return
+     */
+    List<Category> queryByCursor(@Param("afterSort") Integer afterSort, @Param("afterId") Long afterId, @Param("limit") int limit,
+                                 @Param("name") String name, @Param("type") Integer type, @Param("ids") Collection<Long> ids);
 
     /**
      * 总记录查询
-     * @param categoryPageQueryDTO
+     * @param name
+     * @param type
+     * @param ids
      * @return
      */
-    int countByPage(CategoryPageQueryDTO categoryPageQueryDTO);
+    int countByPage(@Param("name") String name, @Param("type") Integer type, @Param("ids") Collection<Long> ids);
 
     /**
      * 更新category的属性
@@ -46,4 +66,19 @@ public interface CategoryMapper {
      */
     @Delete("DELETE FROM category WHERE id = #{id}")
     void delete(Long id);
+
+    /**
+     * 根据id查询分类
+     * @param id
+     * @return
+     */
+    @Select("SELECT * FROM category WHERE id = #{id}")
+    Category getById(Long id);
+
+    /**
+     * 查询全部分类，用于加载分类缓存
+     * @return
+     */
+    @Select("SELECT * FROM category ORDER BY sort ASC, create_time DESC")
+    List<Category> listAll();
 }
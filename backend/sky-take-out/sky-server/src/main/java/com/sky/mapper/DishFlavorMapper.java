@@ -0,0 +1,40 @@
+package com.sky.mapper;
+
+import com.sky.entity.DishFlavor;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface DishFlavorMapper {
+
+    /**
+     * 一次查询多个菜品的口味，代替逐个菜品查询
+     * @param dishIds
+     * @return
+     */
+    List<DishFlavor> listByDishIds(Collection<Long> dishIds);
+
+    /**
+     * 批量插入口味，一条多行 INSERT 语句
+     * @param flavors
+     */
+    void insertBatch(List<DishFlavor> flavors);
+
+    /**
+     * 删除菜品的全部口味
+     * @param dishId
+     */
+    @Delete("DELETE FROM dish_flavor WHERE dish_id = #{dishId}")
+    void deleteByDishId(Long dishId);
+
+    /**
+     * 删除一批菜品的全部口味
+     * @param dishIds
+     */
+    void deleteByDishIds(@Param("dishIds") Collection<Long> dishIds);
+
+}
@@ -0,0 +1,103 @@
+package com.sky.mapper;
+
+import com.sky.dto.DishPageQueryDTO;
+import com.sky.entity.Dish;
+import com.sky.vo.DishVO;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface DishMapper {
+
+    /**
+     * 根据主键查询菜品
+     * @param id
+     * @return
+     */
+    @Select("SELECT * FROM dish WHERE id = #{id}")
+    Dish getById(Long id);
+
+    /**
+     * 根据分类id和状态查询菜品
+     * @param categoryId
+     * @param status
+     * @return
+     */
+    @Select("SELECT * FROM dish WHERE category_id = #{categoryId} AND status = #{status} ORDER BY create_time DESC")
+    List<Dish> listByCategoryId(@Param("categoryId") Long categoryId, @Param("status") Integer status);
+
+    /**
+     * 插入菜品，回填主键
+     * @param dish
+     */
+    void insert(Dish dish);
+
+    /**
+     * 根据主键修改菜品，只修改不为空的字段
+     * @param dish
+     * @return 实际修改的行数，0 表示菜品不存在
+     */
+    int update(Dish dish);
+
+    /**
+     * 分页查询菜品，同时查出分类名称
+     * @param pageStart
+     * @param pageSize
+     * @param dishPageQueryDTO
+     * @return
+     */
+    List<DishVO> queryByPage(@Param("pageStart") int pageStart, @Param("pageSize") int pageSize,
+                             @Param("query") DishPageQueryDTO dishPageQueryDTO);
+
+    /**
+     * 分页查询的总记录数
+     * @param dishPageQueryDTO
+     * @return
+     */
+    int countByPage(@Param("query") DishPageQueryDTO dishPageQueryDTO);
+
+    /**
+     * 根据主键批量查询菜品
+     * @param ids
+     * @return
+     */
+    List<Dish> listByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 统计一批菜品中处于某个状态的数量
+     * @param ids
+     * @param status
+     * @return
+     */
+    int countByIdsAndStatus(@Param("ids") Collection<Long> ids, @Param("status") Integer status);
+
+    /**
+     * 一批菜品所属的分类id
+     * @param ids
+     * @return
+     */
+    List<Long> listCategoryIdsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 批量修改菜品状态
+     * @param ids
+     * @param status
+     * @param updateTime
+     * @param updateUser
+     * @return
+     */
+    int updateStatusByIds(@Param("ids") Collection<Long> ids, @Param("status") Integer status,
+                          @Param("updateTime") LocalDateTime updateTime, @Param("updateUser") Long updateUser);
+
+    /**
+     * 批量删除菜品
+     * @param ids
+     */
+    void deleteByIds(@Param("ids") Collection<Long> ids);
+
+}
@@ -1,12 +1,16 @@
 package com.sky.mapper;
 
 import com.github.pagehelper.Page;
-import com.sky.dto.EmployeePageQueryDTO;
 import com.sky.entity.Employee;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.Collection;
+import java.util.List;
+
 @Mapper
 public interface EmployeeMapper {
 
@@ -25,15 +29,18 @@ public interface EmployeeMapper {
     @Insert("insert into employee (name, username, password, phone, sex, id_number, create_time, update_time, create_user, update_user)" +
             "values" +
             "(#{name}, #{username}, #{password}, #{phone}, #{sex}, #{idNumber}, #{createTime}, #{updateTime}, #{createUser}, #{updateUser})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
     void insert(Employee employee);
 
     /**
      * 分页查询的方法，需要使用动态SQL，不能使用注解的方式
      * 需要一个映射文件。在server模块中的resource mapper中
-     * @param employeePageQueryDTO
+     * ids 不为空时按主键过滤(由姓名索引查出)，否则按姓名模糊匹配
+     * @param name
+     * @param ids
      * @return
      */
-    Page<Employee> pageQuery(EmployeePageQueryDTO employeePageQueryDTO);
+    Page<Employee> pageQuery(@Param("name") String name, @Param("ids") Collection<Long> ids);
 
     /**
      * 根据主键动态修改属性
@@ -51,4 +58,11 @@ public interface EmployeeMapper {
      */
     @Select("SELECT * FROM employee WHERE id = #{id}")
     Employee selectById(Long id);
+
+    /**
+     * 查询全部员工的id和姓名，用于构建姓名索引
+     * @return
+     */
+    @Select("SELECT id, name FROM employee")
+    List<Employee> listIdAndName();
 }
@@ -0,0 +1,91 @@
+package com.sky.mapper;
+
+import com.sky.entity.Orders;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface OrderMapper {
+
+    /**
+     * 插入订单，主键由调用方生成
+     * @param orders
+     */
+    void insert(Orders orders);
+
+    /**
+     * 根据id查询订单
+     * @param id
+     * @return
+     */
+    @Select("SELECT * FROM orders WHERE id = #{id}")
+    Orders getById(Long id);
+
+    /**
+     * 根据订单号查询订单
+     * @param number
+     * @return
+     */
+    @Select("SELECT * FROM orders WHERE number = #{number}")
+    Orders getByNumber(String number);
+
+    /**
+     * 根据订单号和用户id查询订单
+     * @param number
+     * @param userId
+     * @return
+     */
+    @Select("SELECT * FROM orders WHERE number = #{number} AND user_id = #{userId}")
+    Orders getByNumberAndUserId(@Param("number") String number, @Param("userId") Long userId);
+
+    /**
+     * 按主键顺序分页查询某个状态的订单的id和时间字段，用于启动时恢复定时任务
+     * @param status
+     * @param afterId 上一页最后一条的id
+     * @param limit
+     * @return
+     */
+    @Select("SELECT id, order_time, estimated_delivery_time FROM orders " +
+            "WHERE status = #{status} AND id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<Orders> listTimesByStatus(@Param("status") Integer status, @Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * 修改订单状态，只有订单当前仍处于 fromStatus 时才会修改
+     * @param id
+     * @param fromStatus
+     * @param orders 目标状态以及要同时修改的字段
+     * @return 实际修改的行数，0 表示订单状态已被其他操作修改
+     */
+    int updateStatus(@Param("id") Long id, @Param("fromStatus") Integer fromStatus, @Param("orders") Orders orders);
+
+    /**
+     * 批量修改订单状态，只修改当前仍处于 fromStatus 的订单
+     * 一条 UPDATE ... WHERE id IN (...) 语句完成，已经被其他操作改变状态的订单不受影响
+     * @param ids
+     * @param fromStatus
+     * @param orders 目标状态以及要同时修改的字段(取消原因、取消时间、送达时间)
+     * @return 实际修改的行数
+     */
+    int updateStatusBatch(@Param("ids") Collection<Long> ids, @Param("fromStatus") Integer fromStatus, @Param("orders") Orders orders);
+
+    /**
+     * 修改支付状态，只有订单当前仍处于 fromPayStatus 时才会修改
+     * @param id
+     * @param fromPayStatus
+     * @param toPayStatus
+     * @return 实际修改的行数
+     */
+    int updatePayStatus(@Param("id") Long id, @Param("fromPayStatus") Integer fromPayStatus, @Param("toPayStatus") Integer toPayStatus);
+
+    /**
+     * 按状态统计订单数量
+     * @param statuses
+     * @return 每行包含 status 和 count
+     */
+    List<Map<String, Object>> countByStatus(@Param("statuses") Collection<Integer> statuses);
+}
@@ -0,0 +1,41 @@
+package com.sky.mapper;
+
+import com.sky.entity.SetmealDish;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface SetmealDishMapper {
+
+    /**
+     * 一次查询多个套餐包含的菜品，代替逐个套餐查询
+     * @param setmealIds
+     * @return
+     */
+    List<SetmealDish> listBySetmealIds(Collection<Long> setmealIds);
+
+    /**
+     * 一批套餐中包含停售菜品的套餐id，一条关联查询完成
+     * @param setmealIds
+     * @param status 停售状态
+     * @return
+     */
+    List<Long> listSetmealIdsContainingDishStatus(@Param("setmealIds") Collection<Long> setmealIds, @Param("status") Integer status);
+
+    /**
+     * 统计一批菜品被套餐引用的数量
+     * @param dishIds
+     * @return
+     */
+    int countByDishIds(@Param("dishIds") Collection<Long> dishIds);
+
+    /**
+     * 删除一批套餐包含的菜品
+     * @param setmealIds
+     */
+    void deleteBySetmealIds(@Param("setmealIds") Collection<Long> setmealIds);
+
+}
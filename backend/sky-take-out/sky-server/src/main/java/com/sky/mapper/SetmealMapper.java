@@ -0,0 +1,105 @@
+package com.sky.mapper;
+
+import com.sky.entity.Setmeal;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface SetmealMapper {
+
+    /**
+     * 根据主键查询套餐
+     * @param id
+     * @return
+     */
+    @Select("SELECT * FROM setmeal WHERE id = #{id}")
+    Setmeal getById(Long id);
+
+    /**
+     * 根据分类id和状态查询套餐
+     * @param categoryId
+     * @param status
+     * @return
+     */
+    @Select("SELECT * FROM setmeal WHERE category_id = #{categoryId} AND status = #{status} ORDER BY create_time DESC")
+    List<Setmeal> listByCategoryId(@Param("categoryId") Long categoryId, @Param("status") Integer status);
+
+    /**
+     * 统计一批套餐中存在的数量
+     * @param ids
+     * @return
+     */
+    int countByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 根据主键批量查询套餐
+     * @param ids
+     * @return
+     */
+    List<Setmeal> listByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 统计一批套餐中处于某个状态的数量
+     * @param ids
+     * @param status
+     * @return
+     */
+    int countByIdsAndStatus(@Param("ids") Collection<Long> ids, @Param("status") Integer status);
+
+    /**
+     * 一批套餐所属的分类id
+     * @param ids
+     * @return
+     */
+    List<Long> listCategoryIdsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 批量停售套餐
+     * @param ids
+     * @param updateTime
+     * @param updateUser
+     * @return
+     */
+    int disableByIds(@Param("ids") Collection<Long> ids,
+                     @Param("updateTime") LocalDateTime updateTime, @Param("updateUser") Long updateUser);
+
+    /**
+     * 批量起售套餐，包含停售菜品的套餐不会被修改
+     * 条件写在同一条 UPDATE 中，校验之后菜品被并发停售也不会起售包含它的套餐
+     * @param ids
+     * @param updateTime
+     * @param updateUser
+     * @return 实际起售的套餐数
+     */
+    int enableByIds(@Param("ids") Collection<Long> ids,
+                    @Param("updateTime") LocalDateTime updateTime, @Param("updateUser") Long updateUser);
+
+    /**
+     * 包含这些菜品的起售中套餐所属的分类id
+     * @param dishIds
+     * @return
+     */
+    List<Long> listEnabledCategoryIdsByDishIds(@Param("dishIds") Collection<Long> dishIds);
+
+    /**
+     * 停售包含这些菜品的套餐
+     * @param dishIds
+     * @param updateTime
+     * @param updateUser
+     * @return
+     */
+    int disableByDishIds(@Param("dishIds") Collection<Long> dishIds,
+                         @Param("updateTime") LocalDateTime updateTime, @Param("updateUser") Long updateUser);
+
+    /**
+     * 批量删除套餐
+     * @param ids
+     */
+    void deleteByIds(@Param("ids") Collection<Long> ids);
+
+}
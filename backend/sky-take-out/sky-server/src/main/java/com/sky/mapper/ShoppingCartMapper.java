@@ -0,0 +1,34 @@
+package com.sky.mapper;
+
+import com.sky.entity.ShoppingCart;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+@Mapper
+public interface ShoppingCartMapper {
+
+    /**
+     * 查询用户的购物车
+     * @param userId
+     * @return
+     */
+    @Select("SELECT * FROM shopping_cart WHERE user_id = #{userId} ORDER BY create_time ASC")
+    List<ShoppingCart> listByUserId(Long userId);
+
+    /**
+     * 清空用户的购物车
+     * @param userId
+     */
+    @Delete("DELETE FROM shopping_cart WHERE user_id = #{userId}")
+    void deleteByUserId(Long userId);
+
+    /**
+     * 批量插入购物车数据
+     * @param shoppingCarts
+     */
+    void insertBatch(List<ShoppingCart> shoppingCarts);
+
+}
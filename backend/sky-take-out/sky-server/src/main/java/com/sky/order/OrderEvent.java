@@ -0,0 +1,54 @@
+package com.sky.order;
+
+import com.sky.entity.Orders;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 订单事件，每个事件声明允许的原状态和变化后的状态
+ */
+public enum OrderEvent {
+
+    PAY_SUCCESS("支付成功", Orders.TO_BE_CONFIRMED, Orders.PENDING_PAYMENT),
+    CONFIRM("接单", Orders.CONFIRMED, Orders.TO_BE_CONFIRMED),
+    REJECT("拒单", Orders.CANCELLED, Orders.TO_BE_CONFIRMED),
+    DELIVER("派送", Orders.DELIVERY_IN_PROGRESS, Orders.CONFIRMED),
+    COMPLETE("完成", Orders.COMPLETED, Orders.DELIVERY_IN_PROGRESS),
+    CANCEL("取消", Orders.CANCELLED,
+            Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED, Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS),
+    PAYMENT_TIMEOUT("支付超时", Orders.CANCELLED, Orders.PENDING_PAYMENT),
+    DELIVERY_TIMEOUT("超时自动完成", Orders.COMPLETED, Orders.DELIVERY_IN_PROGRESS);
+
+    private final String description;
+    private final Integer toStatus;
+    private final List<Integer> fromStatuses;
+
+    OrderEvent(String description, Integer toStatus, Integer... fromStatuses) {
+        this.description = description;
+        this.toStatus = toStatus;
+        this.fromStatuses = Collections.unmodifiableList(Arrays.asList(fromStatuses));
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Integer getToStatus() {
+        return toStatus;
+    }
+
+    public List<Integer> getFromStatuses() {
+        return fromStatuses;
+    }
+
+    /**
+     * 订单处于这个状态时能否触发本事件
+     * @param status
+     * @return
+     */
+    public boolean canFire(Integer status) {
+        return fromStatuses.contains(status);
+    }
+}
@@ -0,0 +1,87 @@
+package com.sky.order;
+
+import com.sky.constant.MessageConstant;
+import com.sky.entity.Orders;
+import com.sky.exception.OrderBusinessException;
+import com.sky.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+
+/**
+ * 订单状态机
+ * 所有订单状态的修改都通过这里完成，每次修改是一条 UPDATE orders SET status = ? WHERE id = ? AND status = ?：
+ * 只有订单仍处于读取时的状态才会修改成功，支付回调和管理端操作同时修改同一个订单时，
+ * 后执行的一方影响 0 行并收到"订单状态错误"，不会覆盖对方的修改。
+ * 不使用 SELECT ... FOR UPDATE 和应用层的锁，行锁只在这一条 UPDATE 执行期间持有。
+ */
+@Component
+@Slf4j
+public class OrderStateMachine {
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+
+    /**
+     * 对单个订单触发事件
+     * @param orders 调用方读取到的订单，以其中的状态作为修改条件
+     * @param event
+     * @param changes 同时修改的其他字段，可以为空
+     */
+    public void fire(Orders orders, OrderEvent event, Orders changes) {
+        Integer fromStatus = orders.getStatus();
+        if (!event.canFire(fromStatus)) {
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
+        Orders target = changes != null ? changes : new Orders();
+        target.setStatus(event.getToStatus());
+        if (orderMapper.updateStatus(orders.getId(), fromStatus, target) == 0) {
+            // 读取之后订单状态已被其他操作修改
+            log.info("订单状态已变化, {}失败, orderId: {}", event.getDescription(), orders.getId());
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
+        countTransition(fromStatus, event.getToStatus(), 1);
+    }
+
+    /**
+     * 对一批订单触发只有一个原状态的事件，返回实际修改的订单数
+     * 不处于原状态的订单直接跳过
+     * @param orderIds
+     * @param event
+     * @param changes
+     * @return
+     */
+    public int fireBatch(Collection<Long> orderIds, OrderEvent event, Orders changes) {
+        if (event.getFromStatuses().size() != 1) {
+            throw new IllegalArgumentException("批量修改只支持单一原状态的事件: " + event);
+        }
+        Integer fromStatus = event.getFromStatuses().get(0);
+        Orders target = changes != null ? changes : new Orders();
+        target.setStatus(event.getToStatus());
+        int updated = orderMapper.updateStatusBatch(orderIds, fromStatus, target);
+        countTransition(fromStatus, event.getToStatus(), updated);
+        return updated;
+    }
+
+    /**
+     * 在事务中时等提交后再更新计数，回滚的修改不计入
+     */
+    private void countTransition(Integer fromStatus, Integer toStatus, int count) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    orderStatusCounter.transition(fromStatus, toStatus, count);
+                }
+            });
+        } else {
+            orderStatusCounter.transition(fromStatus, toStatus, count);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.sky.order;
+
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.vo.OrderStatisticsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 订单状态计数器：内存中维护待接单、待派送、派送中的订单数量
+ * 每次订单状态变化时增减对应的计数，管理端查询订单统计不访问数据库；
+ * 定期用一条 GROUP BY 查询与数据库对账，修正多实例部署或异常导致的偏差。
+ * 只统计这三个状态，已完成、已取消这类只增不减的状态不做计数，对账查询可以只走 status 索引上的三个区间。
+ */
+@Component
+@Slf4j
+public class OrderStatusCounter {
+
+    // 参与计数的状态
+    private static final List<Integer> TRACKED_STATUSES =
+            Arrays.asList(Orders.TO_BE_CONFIRMED, Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS);
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    // 下标为订单状态，LongAdder 内部按线程分段累加，高并发下没有 CAS 争用
+    private final LongAdder[] counters = new LongAdder[Orders.CANCELLED + 1];
+
+    public OrderStatusCounter() {
+        for (Integer status : TRACKED_STATUSES) {
+            counters[status] = new LongAdder();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        reconcile();
+    }
+
+    /**
+     * 订单状态变化后调用
+     * @param fromStatus 原状态，新建订单时为空
+     * @param toStatus
+     * @param count 状态变化的订单数
+     */
+    public void transition(Integer fromStatus, Integer toStatus, long count) {
+        if (count <= 0) {
+            return;
+        }
+        LongAdder from = counter(fromStatus);
+        if (from != null) {
+            from.add(-count);
+        }
+        LongAdder to = counter(toStatus);
+        if (to != null) {
+            to.add(count);
+        }
+    }
+
+    /**
+     * 当前的订单统计，不访问数据库
+     * @return
+     */
+    public OrderStatisticsVO statistics() {
+        OrderStatisticsVO orderStatisticsVO = new OrderStatisticsVO();
+        orderStatisticsVO.setToBeConfirmed(get(Orders.TO_BE_CONFIRMED));
+        orderStatisticsVO.setConfirmed(get(Orders.CONFIRMED));
+        orderStatisticsVO.setDeliveryInProgress(get(Orders.DELIVERY_IN_PROGRESS));
+        return orderStatisticsVO;
+    }
+
+    /**
+     * 与数据库对账
+     * 按差值修正而不是直接覆盖，查询期间发生的状态变化最多造成一个周期的偏差，下次对账时修正
+     */
+    @Scheduled(fixedDelayString = "${sky.order-statistics.reconcile-interval-millis:60000}",
+            initialDelayString = "${sky.order-statistics.reconcile-interval-millis:60000}")
+    public void reconcile() {
+        List<Map<String, Object>> rows;
+        try {
+            rows = orderMapper.countByStatus(TRACKED_STATUSES);
+        } catch (Exception e) {
+            log.error("订单状态计数对账失败", e);
+            return;
+        }
+        long[] actual = new long[counters.length];
+        for (Map<String, Object> row : rows) {
+            int status = ((Number) row.get("status")).intValue();
+            if (status >= 0 && status < actual.length) {
+                actual[status] = ((Number) row.get("count")).longValue();
+            }
+        }
+        for (Integer status : TRACKED_STATUSES) {
+            long diff = actual[status] - counters[status].sum();
+            if (diff != 0) {
+                counters[status].add(diff);
+                log.info("订单状态计数对账修正, status: {}, 偏差: {}", status, diff);
+            }
+        }
+    }
+
+    private LongAdder counter(Integer status) {
+        if (status == null || status < 0 || status >= counters.length) {
+            return null;
+        }
+        return counters[status];
+    }
+
+    private Integer get(Integer status) {
+        return (int) Math.max(counters[status].sum(), 0);
+    }
+}
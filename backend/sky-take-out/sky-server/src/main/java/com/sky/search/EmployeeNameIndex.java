@@ -0,0 +1,101 @@
+package com.sky.search;
+
+import com.sky.cache.TwoLevelCacheManager;
+import com.sky.constant.CacheConstant;
+import com.sky.entity.Employee;
+import com.sky.mapper.EmployeeMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 员工姓名索引
+ * 第一次查询时从数据库加载全部员工姓名，之后随新增、修改员工同步更新。
+ * 新增、修改员工时借用两级缓存的失效广播通知所有实例，各实例从数据库重新读取这个员工的姓名。
+ * 广播可能丢失(例如 Redis 短暂不可用)，所以仍然每隔一段时间整体重新加载一次作为兜底。
+ */
+@Component
+@Slf4j
+public class EmployeeNameIndex {
+
+    // 整体重新加载的间隔
+    private static final long RELOAD_INTERVAL_MILLIS = 10 * 60 * 1000;
+
+    @Autowired
+    private EmployeeMapper employeeMapper;
+    @Autowired
+    private TwoLevelCacheManager cacheManager;
+
+    private volatile NgramNameIndex index;
+    private volatile long loadedAt;
+
+    /**
+     * 查询姓名中包含关键字的员工id
+     * @param name
+     * @return
+     */
+    public Set<Long> searchIds(String name) {
+        return current().search(name);
+    }
+
+    /**
+     * 收到员工姓名变更通知(本实例或其他实例发起)时，从数据库读取最新的姓名更新索引
+     */
+    @PostConstruct
+    public void init() {
+        cacheManager.addEvictionListener((cacheName, key) -> {
+            if (!CacheConstant.EMPLOYEE_NAME.equals(cacheName)) {
+                return;
+            }
+            if (key == null) {
+                index = null;
+            } else {
+                reload(Long.valueOf(key));
+            }
+        });
+    }
+
+    /**
+     * 新增或修改员工姓名后通知所有实例更新索引
+     * @param id
+     */
+    public void refresh(Long id) {
+        cacheManager.publishEviction(CacheConstant.EMPLOYEE_NAME, String.valueOf(id));
+    }
+
+    private void reload(Long id) {
+        NgramNameIndex current = index;
+        if (current == null) {
+            // 还没有加载过，第一次查询时会加载全部姓名
+            return;
+        }
+        Employee employee = employeeMapper.selectById(id);
+        if (employee != null && employee.getName() != null) {
+            current.put(id, employee.getName());
+        }
+    }
+
+    private NgramNameIndex current() {
+        NgramNameIndex current = index;
+        if (current != null && System.currentTimeMillis() - loadedAt < RELOAD_INTERVAL_MILLIS) {
+            return current;
+        }
+        synchronized (this) {
+            if (index == null || System.currentTimeMillis() - loadedAt >= RELOAD_INTERVAL_MILLIS) {
+                NgramNameIndex loaded = new NgramNameIndex();
+                List<Employee> employees = employeeMapper.listIdAndName();
+                for (Employee employee : employees) {
+                    loaded.put(employee.getId(), employee.getName());
+                }
+                log.info("加载员工姓名索引, 共 {} 条", employees.size());
+                index = loaded;
+                loadedAt = System.currentTimeMillis();
+            }
+            return index;
+        }
+    }
+}
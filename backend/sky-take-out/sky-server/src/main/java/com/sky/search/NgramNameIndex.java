@@ -0,0 +1,125 @@
+package com.sky.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 名称的 n-gram 倒排索引，用来代替 LIKE '%xxx%' 的全表扫描
+ * 每个名称按字符(支持中文)拆成单字和相邻两字，分别记录包含它们的id。
+ * 查询一个字时直接取单字的id集合；查询多个字时取所有相邻两字id集合的交集，再用原始名称确认确实包含查询串。
+ * 线程安全，可以边查询边更新。
+ */
+public class NgramNameIndex {
+
+    // n-gram -> 包含该 n-gram 的id集合
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    // id -> 规范化之后的名称
+    private final Map<Long, String> names = new ConcurrentHashMap<>();
+
+    /**
+     * 新增或更新一个名称
+     * @param id
+     * @param name
+     */
+    public void put(Long id, String name) {
+        remove(id);
+        if (id == null || name == null || name.isEmpty()) {
+            return;
+        }
+        String normalized = normalize(name);
+        names.put(id, normalized);
+        for (String gram : grams(normalized)) {
+            postings.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    /**
+     * 删除一个名称
+     * @param id
+     */
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        String old = names.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (String gram : grams(old)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+            }
+        }
+    }
+
+    /**
+     * 查询名称中包含关键字的id，按id升序返回
+     * @param keyword
+     * @return
+     */
+    public Set<Long> search(String keyword) {
+        String normalized = normalize(keyword);
+        List<String> queryGrams = normalized.codePointCount(0, normalized.length()) == 1
+                ? Collections.singletonList(normalized)
+                : bigrams(normalized);
+
+        // 从最小的id集合开始求交集
+        Set<Long> smallest = null;
+        for (String gram : queryGrams) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null || ids.isEmpty()) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        if (smallest == null) {
+            return Collections.emptySet();
+        }
+
+        Set<Long> result = new TreeSet<>();
+        for (Long id : smallest) {
+            // n-gram 全部命中不代表连续出现，用原始名称确认
+            String name = names.get(id);
+            if (name != null && name.contains(normalized)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 名称拆分出的全部单字和相邻两字
+     */
+    private static Set<String> grams(String name) {
+        Set<String> grams = new HashSet<>(bigrams(name));
+        name.codePoints().forEach(cp -> grams.add(new String(Character.toChars(cp))));
+        return grams;
+    }
+
+    private static List<String> bigrams(String name) {
+        int[] codePoints = name.codePoints().toArray();
+        List<String> bigrams = new ArrayList<>();
+        for (int i = 0; i + 1 < codePoints.length; i++) {
+            bigrams.add(new String(codePoints, i, 2));
+        }
+        return bigrams;
+    }
+}
@@ -1,9 +1,14 @@
 package com.sky.service;
 
+import com.sky.dto.CategoryCursorQueryDTO;
 import com.sky.dto.CategoryDTO;
 import com.sky.dto.CategoryPageQueryDTO;
+import com.sky.entity.Category;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 
+import java.util.List;
+
 public interface CategoryService {
     /**
      * 添加类别
@@ -18,6 +23,13 @@ public interface CategoryService {
      */
     PageResult page(CategoryPageQueryDTO categoryPageQueryDTO);
 
+    /**
+     * 类别游标分页查询
+     * @param categoryCursorQueryDTO
+     * @return
+     */
+    CursorPageResult cursorPage(CategoryCursorQueryDTO categoryCursorQueryDTO);
+
     /**
      * 启用，禁用分类
      * @param status
@@ -36,4 +48,18 @@ public interface CategoryService {
      * @param categoryDTO
      */
     void updateById(CategoryDTO categoryDTO);
+
+    /**
+     * 根据类型查询启用的分类
+     * @param type 为 null 时查询全部类型
+     * @return
+     */
+    List<Category> list(Integer type);
+
+    /**
+     * 根据id查询分类
+     * @param id
+     * @return
+     */
+    Category getById(Long id);
 }
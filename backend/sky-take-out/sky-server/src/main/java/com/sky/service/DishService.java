@@ -0,0 +1,58 @@
+package com.sky.service;
+
+import com.sky.dto.DishDTO;
+import com.sky.dto.DishPageQueryDTO;
+import com.sky.result.PageResult;
+import com.sky.vo.DishVO;
+
+import java.util.List;
+
+public interface DishService {
+
+    /**
+     * 新增菜品和对应的口味
+     * @param dishDTO
+     */
+    void saveWithFlavor(DishDTO dishDTO);
+
+    /**
+     * 菜品分页查询，包含口味
+     * @param dishPageQueryDTO
+     * @return
+     */
+    PageResult page(DishPageQueryDTO dishPageQueryDTO);
+
+    /**
+     * 根据id查询菜品和对应的口味
+     * @param id
+     * @return
+     */
+    DishVO getByIdWithFlavor(Long id);
+
+    /**
+     * 修改菜品，口味整体替换
+     * @param dishDTO
+     */
+    void updateWithFlavor(DishDTO dishDTO);
+
+    /**
+     * 根据分类id查询启用的菜品和对应的口味
+     * @param categoryId
+     * @return
+     */
+    List<DishVO> listByCategoryId(Long categoryId);
+
+    /**
+     * 批量起售、停售菜品
+     * @param status
+     * @param ids
+     */
+    void startOrStop(Integer status, List<Long> ids);
+
+    /**
+     * 批量删除菜品
+     * @param ids
+     */
+    void deleteBatch(List<Long> ids);
+
+}
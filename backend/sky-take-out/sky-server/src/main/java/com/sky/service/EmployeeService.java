@@ -11,9 +11,10 @@ public interface EmployeeService {
     /**
      * 员工登录
      * @param employeeLoginDTO
+     * @param clientIp
      * @return
      */
-    Employee login(EmployeeLoginDTO employeeLoginDTO);
+    Employee login(EmployeeLoginDTO employeeLoginDTO, String clientIp);
 
     /**
      * 新增员工方法
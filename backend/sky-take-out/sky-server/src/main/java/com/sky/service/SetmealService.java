@@ -0,0 +1,29 @@
+package com.sky.service;
+
+import com.sky.vo.SetmealVO;
+
+import java.util.List;
+
+public interface SetmealService {
+
+    /**
+     * 根据分类id查询启用的套餐和套餐包含的菜品
+     * @param categoryId
+     * @return
+     */
+    List<SetmealVO> listByCategoryId(Long categoryId);
+
+    /**
+     * 批量起售、停售套餐
+     * @param status
+     * @param ids
+     */
+    void startOrStop(Integer status, List<Long> ids);
+
+    /**
+     * 批量删除套餐
+     * @param ids
+     */
+    void deleteBatch(List<Long> ids);
+
+}
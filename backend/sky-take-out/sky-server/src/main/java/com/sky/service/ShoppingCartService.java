@@ -0,0 +1,46 @@
+package com.sky.service;
+
+import com.sky.dto.ShoppingCartDTO;
+import com.sky.entity.ShoppingCart;
+
+import java.util.List;
+
+public interface ShoppingCartService {
+
+    /**
+     * 添加购物车
+     * @param shoppingCartDTO
+     */
+    void add(ShoppingCartDTO shoppingCartDTO);
+
+    /**
+     * 减少购物车中一个商品，数量为0时删除
+     * @param shoppingCartDTO
+     */
+    void sub(ShoppingCartDTO shoppingCartDTO);
+
+    /**
+     * 查看购物车
+     * @return
+     */
+    List<ShoppingCart> list();
+
+    /**
+     * 清空购物车
+     */
+    void clean();
+
+    /**
+     * 从购物车中扣除下单时的商品数量，扣完的商品删除；下单之后新加入的商品和数量保留
+     * @param userId
+     * @param items 下单时的购物车快照
+     */
+    void removeItems(Long userId, List<ShoppingCart> items);
+
+    /**
+     * 把用户的购物车写回数据库，用于开启写回时的定时任务
+     * @param userId
+     */
+    void flushToDatabase(Long userId);
+
+}
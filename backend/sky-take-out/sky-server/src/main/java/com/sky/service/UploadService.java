@@ -0,0 +1,25 @@
+package com.sky.service;
+
+import com.sky.vo.ImageUploadVO;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface UploadService {
+
+    /**
+     * 异步上传文件，文件按内容命名，内容相同的文件只上传一次
+     * 任务过多时返回的 future 直接以 UploadFailedException 失败
+     * @param file
+     * @return 文件访问路径
+     */
+    CompletableFuture<String> upload(MultipartFile file);
+
+    /**
+     * 异步上传图片，同时生成缩略图、列表图、详情图
+     * @param file
+     * @return 原图和各尺寸的访问路径
+     */
+    CompletableFuture<ImageUploadVO> uploadImage(MultipartFile file);
+
+}
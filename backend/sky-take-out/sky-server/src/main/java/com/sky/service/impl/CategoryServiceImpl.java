@@ -1,27 +1,56 @@
 package com.sky.service.impl;
 
 import com.fasterxml.jackson.databind.ser.Serializers;
+import com.sky.cache.CategoryCache;
+import com.sky.cache.ExpiringCache;
+import com.sky.constant.CacheConstant;
 import com.sky.constant.StatusConstant;
 import com.sky.context.BaseContext;
+import com.sky.dto.CategoryCursorQueryDTO;
 import com.sky.dto.CategoryDTO;
 import com.sky.dto.CategoryPageQueryDTO;
 import com.sky.entity.Category;
 import com.sky.mapper.CategoryMapper;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.service.CategoryService;
+import com.sky.utils.CursorUtil;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class CategoryServiceImpl implements CategoryService {
+    // 游标分页默认和最大的每页记录数
+    private static final int DEFAULT_CURSOR_PAGE_SIZE = 10;
+    private static final int MAX_CURSOR_PAGE_SIZE = 500;
+    // 分页总记录数的缓存时长和最大条数
+    private static final long COUNT_CACHE_TTL_MILLIS = 5 * 1000;
+    private static final int COUNT_CACHE_MAX_SIZE = 1000;
+    // 名称索引命中的id超过这个数量时改回模糊查询，避免拼出过长的 IN 列表
+    private static final int MAX_ID_FILTER_SIZE = 1000;
+
     // 自动注入mapper
     @Autowired
     private CategoryMapper categoryMapper;
 
+    @Autowired
+    private CategoryCache categoryCache;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // 按查询条件缓存总记录数，翻页时条件不变，不需要每一页都重新 count
+    private final ExpiringCache<String, Integer> countCache = new ExpiringCache<>(COUNT_CACHE_MAX_SIZE);
+
     @Override
     public void addCategory(CategoryDTO categoryDTO) {
 
@@ -46,6 +75,8 @@ public class CategoryServiceImpl implements CategoryService {
 
         // 调用mapper 注入数据库
         categoryMapper.insert(category);
+        countCache.clear();
+        categoryCache.refresh(category.getId());
     }
 
     /**
@@ -64,11 +95,30 @@ public class CategoryServiceImpl implements CategoryService {
         Integer type = categoryPageQueryDTO.getType();  // get type
         int pageSize = categoryPageQueryDTO.getPageSize();
 
+        // 按名称查询时先通过名称索引查出匹配的id
+        Collection<Long> ids = resolveNameIds(name);
+        if (ids != null && ids.isEmpty()) {
+            return new PageResult(0, Collections.emptyList());
+        }
+
         // 查询当前页数据, 分页查询需要传入多个数据
-        List<Category> list = categoryMapper.queryByPage(pageStart, pageSize, name, type);
+        List<Category> list = categoryMapper.queryByPage(pageStart, pageSize, name, type, ids);
 
-        // 查询总的记录数
-        int total = categoryMapper.countByPage(categoryPageQueryDTO);
+        // 查询总的记录数，优先使用缓存；前端明确不需要总数时不查询，总数返回 -1
+        String countKey = name + "|" + type;
+        Integer total = countCache.get(countKey);
+        if (total == null) {
+            if (list.size() < pageSize && (!list.isEmpty() || pageStart == 0)) {
+                // 不满一页说明已经到最后一页，总数可以直接算出来
+                total = pageStart + list.size();
+                countCache.put(countKey, total, System.currentTimeMillis() + COUNT_CACHE_TTL_MILLIS);
+            } else if (Boolean.FALSE.equals(categoryPageQueryDTO.getNeedTotal())) {
+                total = -1;
+            } else {
+                total = categoryMapper.countByPage(name, type, ids);
+                countCache.put(countKey, total, System.currentTimeMillis() + COUNT_CACHE_TTL_MILLIS);
+            }
+        }
 
         // 封装分页结果
         PageResult pageResult = new PageResult();
@@ -78,6 +128,74 @@ public class CategoryServiceImpl implements CategoryService {
         return pageResult;
     }
 
+    /**
+     * 类别游标分页查询实现
+     * 游标由上一页最后一条记录的 (sort, id) 编码而成，查询时直接从该位置往后取，
+     * 不需要像 LIMIT offset 那样扫描并丢弃前面所有的行
+     * @param categoryCursorQueryDTO
+     * @return
+     */
+    @Override
+    public CursorPageResult cursorPage(CategoryCursorQueryDTO categoryCursorQueryDTO) {
+        int pageSize = categoryCursorQueryDTO.getPageSize();
+        if (pageSize <= 0) {
+            pageSize = DEFAULT_CURSOR_PAGE_SIZE;
+        }
+        pageSize = Math.min(pageSize, MAX_CURSOR_PAGE_SIZE);
+
+        // 解析游标
+        Integer afterSort = null;
+        Long afterId = null;
+        String after = categoryCursorQueryDTO.getAfter();
+        if (after != null && !after.isEmpty()) {
+            // 游标: 排序值是否为空(0 为空, 1 不为空), 排序值, id
+            long[] values = CursorUtil.decode(after, 3);
+            afterSort = values[0] == 0 ? null : (int) values[1];
+            afterId = values[2];
+        }
+
+        String name = categoryCursorQueryDTO.getName();
+        Collection<Long> ids = resolveNameIds(name);
+        if (ids != null && ids.isEmpty()) {
+            return new CursorPageResult(Collections.emptyList(), null, false);
+        }
+
+        // 多查一条，用来判断是否还有下一页
+        List<Category> list = categoryMapper.queryByCursor(afterSort, afterId, pageSize + 1,
+                name, categoryCursorQueryDTO.getType(), ids);
+
+        boolean hasMore = list.size() > pageSize;
+        String nextCursor = null;
+        if (hasMore) {
+            list = new ArrayList<>(list.subList(0, pageSize));
+            Category last = list.get(pageSize - 1);
+            // 排序值为空时单独标记，不能当作0，否则会跳过或重复 sort 为0和为空的记录
+            if (last.getSort() == null) {
+                nextCursor = CursorUtil.encode(0, 0, last.getId());
+            } else {
+                nextCursor = CursorUtil.encode(1, last.getSort(), last.getId());
+            }
+        }
+
+        return new CursorPageResult(list, nextCursor, hasMore);
+    }
+
+    /**
+     * 通过名称索引查出名称包含关键字的分类id，代替 LIKE '%xx%' 的全表扫描
+     * @param name
+     * @return 不按名称过滤或者命中太多时返回 null(由 SQL 自行模糊匹配)，没有任何匹配时返回空集合
+     */
+    private Collection<Long> resolveNameIds(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        Set<Long> ids = categoryCache.searchIds(name);
+        if (ids.size() > MAX_ID_FILTER_SIZE) {
+            return null;
+        }
+        return ids;
+    }
+
     /**
      * 启用，禁用分类
      * @param status
@@ -97,6 +215,8 @@ public class CategoryServiceImpl implements CategoryService {
 
         // 使用update方法
         categoryMapper.update(category);
+        categoryCache.refresh(id);
+        evictMenuCache(id);
     }
 
     /**
@@ -108,6 +228,9 @@ public class CategoryServiceImpl implements CategoryService {
 
         // 如何删除？
         categoryMapper.delete(id);
+        countCache.clear();
+        categoryCache.refresh(id);
+        evictMenuCache(id);
     }
 
     @Override
@@ -123,5 +246,39 @@ public class CategoryServiceImpl implements CategoryService {
 
         // 调用update方法
         categoryMapper.update(category);
+        // 名称和类型可能变化，影响按条件统计的总数
+        countCache.clear();
+        categoryCache.refresh(category.getId());
+        evictMenuCache(category.getId());
+    }
+
+    /**
+     * 根据类型查询启用的分类 实现
+     * 直接读取分类缓存快照，不访问数据库
+     * @param type
+     * @return
+     */
+    @Override
+    public List<Category> list(Integer type) {
+        return categoryCache.list(type, StatusConstant.ENABLE);
+    }
+
+    /**
+     * 根据id查询分类 实现
+     * @param id
+     * @return
+     */
+    @Override
+    public Category getById(Long id) {
+        return categoryCache.getById(id);
+    }
+
+    /**
+     * 分类名称、状态变化后删除该分类下的菜品、套餐缓存
+     * @param id
+     */
+    private void evictMenuCache(Long id) {
+        cacheManager.getCache(CacheConstant.DISH_BY_CATEGORY).evict(id);
+        cacheManager.getCache(CacheConstant.SETMEAL_BY_CATEGORY).evict(id);
     }
 }
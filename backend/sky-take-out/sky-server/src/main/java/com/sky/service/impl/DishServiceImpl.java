@@ -0,0 +1,251 @@
+package com.sky.service.impl;
+
+import com.sky.cache.CategoryCache;
+import com.sky.constant.CacheConstant;
+import com.sky.constant.MessageConstant;
+import com.sky.constant.StatusConstant;
+import com.sky.context.BaseContext;
+import com.sky.dto.DishDTO;
+import com.sky.dto.DishPageQueryDTO;
+import com.sky.entity.Category;
+import com.sky.entity.Dish;
+import com.sky.entity.DishFlavor;
+import com.sky.exception.DeletionNotAllowedException;
+import com.sky.exception.DishNotFoundException;
+import com.sky.exception.InvalidStatusException;
+import com.sky.loader.DishFlavorLoader;
+import com.sky.mapper.CategoryMapper;
+import com.sky.mapper.DishFlavorMapper;
+import com.sky.mapper.DishMapper;
+import com.sky.mapper.SetmealDishMapper;
+import com.sky.mapper.SetmealMapper;
+import com.sky.result.PageResult;
+import com.sky.service.DishService;
+import com.sky.storage.ImageUrlResolver;
+import com.sky.vo.DishVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Service
+@Slf4j
+public class DishServiceImpl implements DishService {
+
+    @Autowired
+    private DishMapper dishMapper;
+    @Autowired
+    private DishFlavorMapper dishFlavorMapper;
+    @Autowired
+    private DishFlavorLoader dishFlavorLoader;
+    @Autowired
+    private CategoryCache categoryCache;
+    @Autowired
+    private CategoryMapper categoryMapper;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private SetmealMapper setmealMapper;
+    @Autowired
+    private SetmealDishMapper setmealDishMapper;
+    @Autowired
+    private ImageUrlResolver imageUrlResolver;
+
+    /**
+     * 新增菜品和对应的口味
+     * 口味用一条多行 INSERT 写入
+     * @param dishDTO
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void saveWithFlavor(DishDTO dishDTO) {
+        Dish dish = new Dish();
+        BeanUtils.copyProperties(dishDTO, dish);
+        dish.setImage(imageUrlResolver.toStoredUrl(dish.getImage()));
+        if (dish.getStatus() == null) {
+            dish.setStatus(StatusConstant.DISABLE);
+        }
+        dish.setCreateTime(LocalDateTime.now());
+        dish.setUpdateTime(LocalDateTime.now());
+        dish.setCreateUser(BaseContext.getCurrentId());
+        dish.setUpdateUser(BaseContext.getCurrentId());
+        dishMapper.insert(dish);
+
+        insertFlavors(dish.getId(), dishDTO.getFlavors());
+        evictCategories(dish.getCategoryId());
+    }
+
+    /**
+     * 菜品分页查询，包含口味
+     * 当前页的口味用一条 IN 查询批量加载，不按菜品逐个查询
+     * @param dishPageQueryDTO
+     * @return
+     */
+    @Override
+    public PageResult page(DishPageQueryDTO dishPageQueryDTO) {
+        int pageStart = (dishPageQueryDTO.getPage() - 1) * dishPageQueryDTO.getPageSize();
+        List<DishVO> list = dishMapper.queryByPage(pageStart, dishPageQueryDTO.getPageSize(), dishPageQueryDTO);
+        dishFlavorLoader.fill(list);
+        int total = dishMapper.countByPage(dishPageQueryDTO);
+        return new PageResult(total, list);
+    }
+
+    /**
+     * 根据id查询菜品和对应的口味
+     * @param id
+     * @return
+     */
+    @Override
+    public DishVO getByIdWithFlavor(Long id) {
+        Dish dish = dishMapper.getById(id);
+        if (dish == null) {
+            return null;
+        }
+        DishVO dishVO = new DishVO();
+        BeanUtils.copyProperties(dish, dishVO);
+        Category category = categoryCache.getById(dish.getCategoryId());
+        if (category != null) {
+            dishVO.setCategoryName(category.getName());
+        }
+        dishFlavorLoader.fill(Collections.singletonList(dishVO));
+        return dishVO;
+    }
+
+    /**
+     * 修改菜品，口味整体替换：删除原有口味后用一条多行 INSERT 写入新口味
+     * @param dishDTO
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void updateWithFlavor(DishDTO dishDTO) {
+        Dish old = dishMapper.getById(dishDTO.getId());
+        if (old == null) {
+            throw new DishNotFoundException(MessageConstant.DISH_NOT_FOUND);
+        }
+
+        Dish dish = new Dish();
+        BeanUtils.copyProperties(dishDTO, dish);
+        dish.setImage(imageUrlResolver.toStoredUrl(dish.getImage()));
+        dish.setUpdateTime(LocalDateTime.now());
+        dish.setUpdateUser(BaseContext.getCurrentId());
+        // 查询之后菜品被删除时不再写入口味，整个修改回滚
+        if (dishMapper.update(dish) == 0) {
+            throw new DishNotFoundException(MessageConstant.DISH_NOT_FOUND);
+        }
+
+        dishFlavorMapper.deleteByDishId(dishDTO.getId());
+        insertFlavors(dishDTO.getId(), dishDTO.getFlavors());
+
+        // 分类可能变化，新旧分类的缓存都要删除
+        evictCategories(old.getCategoryId(), dish.getCategoryId());
+    }
+
+    /**
+     * 根据分类id查询启用的菜品和对应的口味
+     * 结果放在两级缓存中，sync = true 使并发的加载合并为一次，菜品修改时只删除涉及的分类
+     * @param categoryId
+     * @return
+     */
+    @Override
+    @Cacheable(cacheNames = CacheConstant.DISH_BY_CATEGORY, key = "#categoryId", sync = true)
+    public List<DishVO> listByCategoryId(Long categoryId) {
+        List<Dish> dishes = dishMapper.listByCategoryId(categoryId, StatusConstant.ENABLE);
+        // 分类名称直接查询数据库，写入共享的二级缓存的数据不依赖本实例可能过期的分类缓存
+        Category category = categoryMapper.getById(categoryId);
+        List<DishVO> dishVOs = new ArrayList<>(dishes.size());
+        for (Dish dish : dishes) {
+            DishVO dishVO = new DishVO();
+            BeanUtils.copyProperties(dish, dishVO);
+            if (category != null) {
+                dishVO.setCategoryName(category.getName());
+            }
+            dishVOs.add(dishVO);
+        }
+        // 一条 IN 查询取出全部口味，再按菜品分组
+        dishFlavorLoader.fill(dishVOs);
+        return dishVOs;
+    }
+
+    /**
+     * 批量起售、停售菜品
+     * 停售时包含这些菜品的起售中套餐一起停售，用一条 UPDATE ... JOIN 完成
+     * @param status
+     * @param ids
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void startOrStop(Integer status, List<Long> ids) {
+        if (!StatusConstant.ENABLE.equals(status) && !StatusConstant.DISABLE.equals(status)) {
+            throw new InvalidStatusException(MessageConstant.STATUS_INVALID);
+        }
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Long userId = BaseContext.getCurrentId();
+        dishMapper.updateStatusByIds(ids, status, now, userId);
+        evictCategories(dishMapper.listCategoryIdsByIds(ids).toArray(new Long[0]));
+
+        if (StatusConstant.DISABLE.equals(status)) {
+            List<Long> setmealCategoryIds = setmealMapper.listEnabledCategoryIdsByDishIds(ids);
+            if (!setmealCategoryIds.isEmpty()) {
+                int count = setmealMapper.disableByDishIds(ids, now, userId);
+                log.info("菜品停售, 同时停售 {} 个套餐", count);
+                Cache cache = cacheManager.getCache(CacheConstant.SETMEAL_BY_CATEGORY);
+                setmealCategoryIds.forEach(cache::evict);
+            }
+        }
+    }
+
+    /**
+     * 批量删除菜品
+     * 起售中、被套餐引用的校验各用一条 IN 查询对整批菜品完成，任意一个不满足时整批都不删除
+     * @param ids
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteBatch(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        if (dishMapper.countByIdsAndStatus(ids, StatusConstant.ENABLE) > 0) {
+            throw new DeletionNotAllowedException(MessageConstant.DISH_ON_SALE);
+        }
+        if (setmealDishMapper.countByDishIds(ids) > 0) {
+            throw new DeletionNotAllowedException(MessageConstant.DISH_BE_RELATED_BY_SETMEAL);
+        }
+        List<Long> categoryIds = dishMapper.listCategoryIdsByIds(ids);
+        dishMapper.deleteByIds(ids);
+        dishFlavorMapper.deleteByDishIds(ids);
+        evictCategories(categoryIds.toArray(new Long[0]));
+    }
+
+    /**
+     * 删除分类下的菜品缓存，在事务中调用时提交后才删除
+     */
+    private void evictCategories(Long... categoryIds) {
+        Cache cache = cacheManager.getCache(CacheConstant.DISH_BY_CATEGORY);
+        for (Long categoryId : categoryIds) {
+            if (categoryId != null) {
+                cache.evict(categoryId);
+            }
+        }
+    }
+
+    private void insertFlavors(Long dishId, List<DishFlavor> flavors) {
+        if (flavors == null || flavors.isEmpty()) {
+            return;
+        }
+        flavors.forEach(flavor -> flavor.setDishId(dishId));
+        dishFlavorMapper.insertBatch(flavors);
+    }
+}
@@ -13,8 +13,10 @@ import com.sky.entity.Employee;
 import com.sky.exception.AccountLockedException;
 import com.sky.exception.AccountNotFoundException;
 import com.sky.exception.PasswordErrorException;
+import com.sky.limiter.LoginAttemptLimiter;
 import com.sky.mapper.EmployeeMapper;
 import com.sky.result.PageResult;
+import com.sky.search.EmployeeNameIndex;
 import com.sky.service.EmployeeService;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,31 +24,47 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.DigestUtils;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.prefs.BackingStoreException;
 
 @Service
 public class EmployeeServiceImpl implements EmployeeService {
 
+    // 姓名索引命中的id超过这个数量时改回模糊查询，避免拼出过长的 IN 列表
+    private static final int MAX_ID_FILTER_SIZE = 1000;
+
     @Autowired
     private EmployeeMapper employeeMapper;
 
+    @Autowired
+    private LoginAttemptLimiter loginAttemptLimiter;
+
+    @Autowired
+    private EmployeeNameIndex employeeNameIndex;
+
     /**
      * 员工登录
      *
      * @param employeeLoginDTO
+     * @param clientIp
      * @return
      */
-    public Employee login(EmployeeLoginDTO employeeLoginDTO) {
+    public Employee login(EmployeeLoginDTO employeeLoginDTO, String clientIp) {
         String username = employeeLoginDTO.getUsername();
         String password = employeeLoginDTO.getPassword();
 
+        // 0、失败次数过多的用户名或ip直接拒绝，不再查询数据库
+        loginAttemptLimiter.checkAllowed(username, clientIp);
+
         // 1、根据用户名查询数据库中的数据
         Employee employee = employeeMapper.getByUsername(username);
 
         //2、处理各种异常情况（用户名不存在、密码不对、账号被锁定）
         if (employee == null) {
             //账号不存在
+            loginAttemptLimiter.recordFailure(username, clientIp);
             throw new AccountNotFoundException(MessageConstant.ACCOUNT_NOT_FOUND);
         }
 
@@ -56,6 +74,7 @@ public class EmployeeServiceImpl implements EmployeeService {
         String encryptPassword = DigestUtils.md5DigestAsHex(password.getBytes());
         if (!encryptPassword.equals(employee.getPassword())) {
             //密码错误
+            loginAttemptLimiter.recordFailure(username, clientIp);
             throw new PasswordErrorException(MessageConstant.PASSWORD_ERROR);
         }
 
@@ -64,6 +83,8 @@ public class EmployeeServiceImpl implements EmployeeService {
             throw new AccountLockedException(MessageConstant.ACCOUNT_LOCKED);
         }
 
+        loginAttemptLimiter.recordSuccess(username);
+
         //3、返回实体对象
         return employee;
     }
@@ -110,6 +131,7 @@ public class EmployeeServiceImpl implements EmployeeService {
 
         // 封装好之后，调用持久层 mapper 注入数据库
         employeeMapper.insert(employee);
+        employeeNameIndex.refresh(employee.getId());
     }
 
     /**
@@ -123,10 +145,30 @@ public class EmployeeServiceImpl implements EmployeeService {
 
         // 2. mybatis 提供的pagehelper 可以简化分页查询
         // pom 中引入 pagehelper
+        // 按姓名查询时先从姓名索引中查出匹配的id，再按主键查询，避免 like '%xx%' 全表扫描
+        // 关键字去掉首尾空白，空白关键字等同于不按姓名过滤
+        String name = employeePageQueryDTO.getName();
+        if (name != null) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                name = null;
+            }
+        }
+        Collection<Long> ids = null;
+        if (name != null) {
+            Collection<Long> matched = employeeNameIndex.searchIds(name);
+            if (matched.isEmpty()) {
+                return new PageResult(0, Collections.emptyList());
+            }
+            if (matched.size() <= MAX_ID_FILTER_SIZE) {
+                ids = matched;
+            }
+        }
+
         // 开始分页查询
         PageHelper.startPage(employeePageQueryDTO.getPage(), employeePageQueryDTO.getPageSize());       // 类似于动态SQL
 
-        Page<Employee> page = employeeMapper.pageQuery(employeePageQueryDTO);
+        Page<Employee> page = employeeMapper.pageQuery(name, ids);
         long total = page.getTotal();
         List<Employee> records = page.getResult();
 
@@ -193,5 +235,8 @@ public class EmployeeServiceImpl implements EmployeeService {
 
         // 调用update方法
         employeeMapper.update(employee);
+        if (employee.getName() != null) {
+            employeeNameIndex.refresh(employee.getId());
+        }
     }
 }
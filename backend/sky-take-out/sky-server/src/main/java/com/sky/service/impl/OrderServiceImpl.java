@@ -0,0 +1,452 @@
+package com.sky.service.impl;
+
+import com.alibaba.fastjson.JSONObject;
+import com.sky.constant.MessageConstant;
+import com.sky.constant.StatusConstant;
+import com.sky.context.BaseContext;
+import com.sky.dto.OrdersCancelDTO;
+import com.sky.dto.OrdersConfirmDTO;
+import com.sky.dto.OrdersPaymentDTO;
+import com.sky.dto.OrdersRejectionDTO;
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.entity.AddressBook;
+import com.sky.entity.Dish;
+import com.sky.entity.OrderDetail;
+import com.sky.entity.Orders;
+import com.sky.entity.Setmeal;
+import com.sky.entity.ShoppingCart;
+import com.sky.entity.User;
+import com.sky.exception.AccountNotFoundException;
+import com.sky.exception.AddressBookBusinessException;
+import com.sky.exception.OrderBusinessException;
+import com.sky.exception.ShoppingCartBusinessException;
+import com.sky.idempotency.IdempotencyTemplate;
+import com.sky.mapper.AddressBookMapper;
+import com.sky.mapper.DishMapper;
+import com.sky.mapper.OrderDetailMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.SetmealMapper;
+import com.sky.mapper.UserMapper;
+import com.sky.order.OrderEvent;
+import com.sky.order.OrderStateMachine;
+import com.sky.order.OrderStatusCounter;
+import com.sky.properties.IdempotencyProperties;
+import com.sky.service.OrderService;
+import com.sky.service.ShoppingCartService;
+import com.sky.task.OrderExpiryScheduler;
+import com.sky.utils.SnowflakeIdGenerator;
+import com.sky.utils.WeChatPayUtil;
+import com.sky.vo.OrderPaymentVO;
+import com.sky.vo.OrderStatisticsVO;
+import com.sky.vo.OrderSubmitVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+@Slf4j
+public class OrderServiceImpl implements OrderService {
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private OrderDetailMapper orderDetailMapper;
+    @Autowired
+    private AddressBookMapper addressBookMapper;
+    @Autowired
+    private ShoppingCartService shoppingCartService;
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private DishMapper dishMapper;
+    @Autowired
+    private SetmealMapper setmealMapper;
+    @Autowired
+    private WeChatPayUtil weChatPayUtil;
+    @Autowired
+    private IdempotencyTemplate idempotencyTemplate;
+    @Autowired
+    private IdempotencyProperties idempotencyProperties;
+    @Autowired
+    private OrderExpiryScheduler orderExpiryScheduler;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+
+    /**
+     * 用户下单
+     * 订单和全部明细在一个事务中写入，明细用一条多行 INSERT 批量插入；
+     * 订单金额由服务端按菜品、套餐的当前价格计算，不使用客户端传入的金额，也不使用加购时记录的价格；
+     * 购物车中的商品已删除或停售时不能下单；
+     * 购物车不在数据库事务里，等事务提交后只移除快照中的商品，回滚时购物车保持不变
+     * @param ordersSubmitDTO
+     * @return
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public OrderSubmitVO submitOrder(OrdersSubmitDTO ordersSubmitDTO) {
+        // 1. 校验地址和购物车
+        AddressBook addressBook = addressBookMapper.getById(ordersSubmitDTO.getAddressBookId());
+        Long userId = BaseContext.getCurrentId();
+        if (addressBook == null || !userId.equals(addressBook.getUserId())) {
+            throw new AddressBookBusinessException(MessageConstant.ADDRESS_BOOK_IS_NULL);
+        }
+
+        // 下单时刻的购物车快照，之后的加购不影响这笔订单
+        List<ShoppingCart> shoppingCartList = shoppingCartService.list();
+        if (shoppingCartList.isEmpty()) {
+            throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_IS_NULL);
+        }
+
+        // 按当前价格重新计价，订单明细也使用当前价格
+        applyCurrentPrices(shoppingCartList);
+
+        // 打包费不能为负数，否则可以用来抵扣商品金额
+        int packAmount = ordersSubmitDTO.getPackAmount() == null ? 0 : ordersSubmitDTO.getPackAmount();
+        if (packAmount < 0) {
+            throw new OrderBusinessException(MessageConstant.PACK_AMOUNT_INVALID);
+        }
+
+        // 2. 插入订单，主键和订单号都由本机的id生成器生成，不依赖数据库自增
+        long orderId = snowflakeIdGenerator.nextId();
+        Orders orders = new Orders();
+        BeanUtils.copyProperties(ordersSubmitDTO, orders, "amount", "packAmount");
+        orders.setId(orderId);
+        orders.setPackAmount(packAmount);
+        orders.setAmount(calculateAmount(shoppingCartList, packAmount));
+        orders.setOrderTime(LocalDateTime.now());
+        orders.setPayStatus(Orders.UN_PAID);
+        orders.setStatus(Orders.PENDING_PAYMENT);
+        orders.setNumber(String.valueOf(orderId));
+        orders.setUserId(userId);
+        orders.setPhone(addressBook.getPhone());
+        orders.setConsignee(addressBook.getConsignee());
+        orders.setAddress(buildAddress(addressBook));
+        orderMapper.insert(orders);
+
+        // 3. 批量插入订单明细
+        List<OrderDetail> orderDetailList = new ArrayList<>(shoppingCartList.size());
+        for (ShoppingCart cart : shoppingCartList) {
+            OrderDetail orderDetail = new OrderDetail();
+            BeanUtils.copyProperties(cart, orderDetail, "id");
+            orderDetail.setOrderId(orders.getId());
+            orderDetailList.add(orderDetail);
+        }
+        orderDetailMapper.insertBatch(orderDetailList);
+
+        // 4. 事务提交后从购物车中扣除已下单的商品，并登记支付超时；下单期间新加入的商品保留
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                shoppingCartService.removeItems(userId, shoppingCartList);
+                orderExpiryScheduler.schedulePaymentTimeout(orders.getId(), orders.getOrderTime());
+            }
+        });
+
+        return OrderSubmitVO.builder()
+                .id(orders.getId())
+                .orderNumber(orders.getNumber())
+                .orderAmount(orders.getAmount())
+                .orderTime(orders.getOrderTime())
+                .build();
+    }
+
+    @Override
+    public OrderPaymentVO payment(OrdersPaymentDTO ordersPaymentDTO) {
+        Long userId = BaseContext.getCurrentId();
+        String key = "payment:" + userId + ":" + ordersPaymentDTO.getOrderNumber();
+        // 预支付交易单2小时后失效，支付结果按单独的时长保留，过期后重新下单生成新的交易单
+        return idempotencyTemplate.execute(key, OrderPaymentVO.class, idempotencyProperties.getPaymentResultTtlSeconds(),
+                () -> doPayment(ordersPaymentDTO.getOrderNumber(), userId));
+    }
+
+    /**
+     * 调用微信支付下单，生成预支付交易单
+     */
+    private OrderPaymentVO doPayment(String orderNumber, Long userId) {
+        Orders orders = orderMapper.getByNumberAndUserId(orderNumber, userId);
+        if (orders == null) {
+            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
+        }
+        if (!Orders.PENDING_PAYMENT.equals(orders.getStatus())) {
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
+        User user = userMapper.getById(userId);
+        if (user == null) {
+            throw new AccountNotFoundException(MessageConstant.ACCOUNT_NOT_FOUND);
+        }
+
+        JSONObject jsonObject;
+        try {
+            jsonObject = weChatPayUtil.pay(orderNumber, orders.getAmount(), "苍穹外卖订单", user.getOpenid());
+        } catch (Exception e) {
+            log.error("调用微信支付失败, orderNumber: {}", orderNumber, e);
+            throw new OrderBusinessException(MessageConstant.ORDER_PAY_FAILED);
+        }
+        if ("ORDERPAID".equals(jsonObject.getString("code"))) {
+            throw new OrderBusinessException(MessageConstant.ORDER_PAID);
+        }
+        // 没有生成预支付交易单时微信返回的是错误信息，抛出异常让幂等键被释放，不把失败当作结果保存
+        if (jsonObject.getString("package") == null) {
+            log.error("微信支付下单失败, orderNumber: {}, code: {}, message: {}",
+                    orderNumber, jsonObject.getString("code"), jsonObject.getString("message"));
+            throw new OrderBusinessException(MessageConstant.ORDER_PAY_FAILED);
+        }
+
+        OrderPaymentVO orderPaymentVO = jsonObject.toJavaObject(OrderPaymentVO.class);
+        orderPaymentVO.setPackageStr(jsonObject.getString("package"));
+        return orderPaymentVO;
+    }
+
+    /**
+     * 各个状态的订单数量统计，直接读取内存中的计数，不查询数据库
+     * @return
+     */
+    @Override
+    public OrderStatisticsVO statistics() {
+        return orderStatusCounter.statistics();
+    }
+
+    /**
+     * 支付成功，修改订单状态
+     * 微信可能重复通知，订单已经记为支付时忽略；
+     * 订单已被取消(例如支付超时)但用户实际付了款时，发起退款
+     * @param outTradeNo 订单号
+     */
+    @Override
+    public void paySuccess(String outTradeNo) {
+        Orders orders = orderMapper.getByNumber(outTradeNo);
+        if (orders == null) {
+            log.warn("支付成功通知的订单不存在, orderNumber: {}", outTradeNo);
+            return;
+        }
+        if (OrderEvent.PAY_SUCCESS.canFire(orders.getStatus())) {
+            Orders changes = Orders.builder()
+                    .payStatus(Orders.PAID)
+                    .checkoutTime(LocalDateTime.now())
+                    .build();
+            try {
+                orderStateMachine.fire(orders, OrderEvent.PAY_SUCCESS, changes);
+                orderExpiryScheduler.cancelPaymentTimeout(orders.getId());
+                return;
+            } catch (OrderBusinessException e) {
+                // 读取之后订单被超时取消、用户取消或被另一次通知处理，重新读取后按当前状态处理
+                orders = orderMapper.getById(orders.getId());
+            }
+        }
+
+        if (Orders.PAID.equals(orders.getPayStatus()) || Orders.REFUND.equals(orders.getPayStatus())) {
+            log.info("重复的支付成功通知, orderNumber: {}, payStatus: {}", outTradeNo, orders.getPayStatus());
+            return;
+        }
+        if (!Orders.CANCELLED.equals(orders.getStatus())) {
+            // 未支付的订单只可能是待付款或已取消，其他情况交给微信稍后重新通知
+            log.error("支付成功通知时订单状态异常, orderNumber: {}, status: {}", outTradeNo, orders.getStatus());
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
+        refundCancelledOrder(orders);
+    }
+
+    /**
+     * 已取消的订单收到了付款，退还给用户
+     * 先把支付状态从未支付改为退款，重复通知中只有修改成功的一次会发起退款；
+     * 退款失败时恢复支付状态并抛出异常，微信会重新通知，到时再次退款
+     */
+    private void refundCancelledOrder(Orders orders) {
+        if (orderMapper.updatePayStatus(orders.getId(), Orders.UN_PAID, Orders.REFUND) == 0) {
+            log.info("已取消订单的付款已在处理, orderNumber: {}", orders.getNumber());
+            return;
+        }
+        try {
+            String result = weChatPayUtil.refund(orders.getNumber(), orders.getNumber(), orders.getAmount(), orders.getAmount());
+            log.info("已取消订单收到付款, 已退款: {}, 结果: {}", orders.getNumber(), result);
+        } catch (Exception e) {
+            orderMapper.updatePayStatus(orders.getId(), Orders.REFUND, Orders.UN_PAID);
+            log.error("已取消订单的付款退款失败, 等待微信重新通知, orderNumber: {}", orders.getNumber(), e);
+            throw new OrderBusinessException(MessageConstant.ORDER_REFUND_FAILED);
+        }
+    }
+
+    /**
+     * 接单
+     * @param ordersConfirmDTO
+     */
+    @Override
+    public void confirm(OrdersConfirmDTO ordersConfirmDTO) {
+        Orders orders = getOrder(ordersConfirmDTO.getId());
+        orderStateMachine.fire(orders, OrderEvent.CONFIRM, null);
+    }
+
+    /**
+     * 拒单，已支付的订单退款
+     * @param ordersRejectionDTO
+     */
+    @Override
+    public void rejection(OrdersRejectionDTO ordersRejectionDTO) {
+        Orders orders = getOrder(ordersRejectionDTO.getId());
+        Orders changes = Orders.builder()
+                .rejectionReason(ordersRejectionDTO.getRejectionReason())
+                .cancelTime(LocalDateTime.now())
+                .payStatus(Orders.PAID.equals(orders.getPayStatus()) ? Orders.REFUND : null)
+                .build();
+        orderStateMachine.fire(orders, OrderEvent.REJECT, changes);
+        refundIfPaid(orders);
+    }
+
+    /**
+     * 取消订单，已支付的订单退款
+     * @param ordersCancelDTO
+     */
+    @Override
+    public void cancel(OrdersCancelDTO ordersCancelDTO) {
+        Orders orders = getOrder(ordersCancelDTO.getId());
+        Orders changes = Orders.builder()
+                .cancelReason(ordersCancelDTO.getCancelReason())
+                .cancelTime(LocalDateTime.now())
+                .payStatus(Orders.PAID.equals(orders.getPayStatus()) ? Orders.REFUND : null)
+                .build();
+        orderStateMachine.fire(orders, OrderEvent.CANCEL, changes);
+        if (Orders.PENDING_PAYMENT.equals(orders.getStatus())) {
+            orderExpiryScheduler.cancelPaymentTimeout(orders.getId());
+        } else if (Orders.DELIVERY_IN_PROGRESS.equals(orders.getStatus())) {
+            orderExpiryScheduler.cancelDeliveryCompletion(orders.getId());
+        }
+        refundIfPaid(orders);
+    }
+
+    /**
+     * 派送订单，超过预计送达时间一段时间后自动完成
+     * @param id
+     */
+    @Override
+    public void delivery(Long id) {
+        Orders orders = getOrder(id);
+        orderStateMachine.fire(orders, OrderEvent.DELIVER, null);
+        orderExpiryScheduler.scheduleDeliveryCompletion(orders.getId(), orders.getEstimatedDeliveryTime());
+    }
+
+    /**
+     * 完成订单
+     * @param id
+     */
+    @Override
+    public void complete(Long id) {
+        Orders orders = getOrder(id);
+        Orders changes = Orders.builder()
+                .deliveryTime(LocalDateTime.now())
+                .build();
+        orderStateMachine.fire(orders, OrderEvent.COMPLETE, changes);
+        orderExpiryScheduler.cancelDeliveryCompletion(orders.getId());
+    }
+
+    private Orders getOrder(Long id) {
+        Orders orders = orderMapper.getById(id);
+        if (orders == null) {
+            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
+        }
+        return orders;
+    }
+
+    /**
+     * 状态修改成功后再退款，并发操作中只有修改成功的一方会发起退款
+     * 退款失败时订单已取消，记录日志后人工处理
+     */
+    private void refundIfPaid(Orders orders) {
+        if (!Orders.PAID.equals(orders.getPayStatus())) {
+            return;
+        }
+        try {
+            String result = weChatPayUtil.refund(orders.getNumber(), orders.getNumber(), orders.getAmount(), orders.getAmount());
+            log.info("订单退款: {}, 结果: {}", orders.getNumber(), result);
+        } catch (Exception e) {
+            log.error("订单退款失败, 需要人工处理, orderNumber: {}", orders.getNumber(), e);
+        }
+    }
+
+    /**
+     * 用菜品、套餐的当前价格替换购物车中加购时记录的价格，菜品和套餐各用一条 IN 查询
+     * 商品已删除或停售时抛出异常，整个下单回滚
+     */
+    private void applyCurrentPrices(List<ShoppingCart> shoppingCartList) {
+        Set<Long> dishIds = new HashSet<>();
+        Set<Long> setmealIds = new HashSet<>();
+        for (ShoppingCart cart : shoppingCartList) {
+            if (cart.getDishId() != null) {
+                dishIds.add(cart.getDishId());
+            } else {
+                setmealIds.add(cart.getSetmealId());
+            }
+        }
+        Map<Long, BigDecimal> dishPrices = new HashMap<>();
+        if (!dishIds.isEmpty()) {
+            for (Dish dish : dishMapper.listByIds(dishIds)) {
+                if (StatusConstant.ENABLE.equals(dish.getStatus())) {
+                    dishPrices.put(dish.getId(), dish.getPrice());
+                }
+            }
+        }
+        Map<Long, BigDecimal> setmealPrices = new HashMap<>();
+        if (!setmealIds.isEmpty()) {
+            for (Setmeal setmeal : setmealMapper.listByIds(setmealIds)) {
+                if (StatusConstant.ENABLE.equals(setmeal.getStatus())) {
+                    setmealPrices.put(setmeal.getId(), setmeal.getPrice());
+                }
+            }
+        }
+
+        for (ShoppingCart cart : shoppingCartList) {
+            BigDecimal price = cart.getDishId() != null
+                    ? dishPrices.get(cart.getDishId())
+                    : setmealPrices.get(cart.getSetmealId());
+            if (price == null) {
+                log.info("购物车中的商品已删除或停售, 不能下单: {}", cart.getName());
+                throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_ITEM_NOT_ON_SALE);
+            }
+            cart.setAmount(price);
+        }
+    }
+
+    /**
+     * 订单金额 = 购物车中每个商品的 单价 * 数量 之和 + 打包费
+     */
+    private static BigDecimal calculateAmount(List<ShoppingCart> shoppingCartList, int packAmount) {
+        BigDecimal amount = BigDecimal.valueOf(packAmount);
+        for (ShoppingCart cart : shoppingCartList) {
+            amount = amount.add(cart.getAmount().multiply(BigDecimal.valueOf(cart.getNumber())));
+        }
+        return amount;
+    }
+
+    private static String buildAddress(AddressBook addressBook) {
+        StringBuilder address = new StringBuilder();
+        if (addressBook.getProvinceName() != null) {
+            address.append(addressBook.getProvinceName());
+        }
+        if (addressBook.getCityName() != null) {
+            address.append(addressBook.getCityName());
+        }
+        if (addressBook.getDistrictName() != null) {
+            address.append(addressBook.getDistrictName());
+        }
+        if (addressBook.getDetail() != null) {
+            address.append(addressBook.getDetail());
+        }
+        return address.toString();
+    }
+}
@@ -0,0 +1,150 @@
+package com.sky.service.impl;
+
+import com.sky.constant.CacheConstant;
+import com.sky.constant.MessageConstant;
+import com.sky.constant.StatusConstant;
+import com.sky.context.BaseContext;
+import com.sky.entity.Category;
+import com.sky.entity.Setmeal;
+import com.sky.entity.SetmealDish;
+import com.sky.exception.DeletionNotAllowedException;
+import com.sky.exception.InvalidStatusException;
+import com.sky.exception.SetmealEnableFailedException;
+import com.sky.exception.SetmealNotFoundException;
+import com.sky.mapper.CategoryMapper;
+import com.sky.mapper.SetmealDishMapper;
+import com.sky.mapper.SetmealMapper;
+import com.sky.service.SetmealService;
+import com.sky.vo.SetmealVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class SetmealServiceImpl implements SetmealService {
+
+    @Autowired
+    private SetmealMapper setmealMapper;
+    @Autowired
+    private SetmealDishMapper setmealDishMapper;
+    @Autowired
+    private CategoryMapper categoryMapper;
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * 根据分类id查询启用的套餐和套餐包含的菜品
+     * 结果放在两级缓存中，sync = true 使并发的加载合并为一次，套餐修改时只删除涉及的分类
+     * @param categoryId
+     * @return
+     */
+    @Override
+    @Cacheable(cacheNames = CacheConstant.SETMEAL_BY_CATEGORY, key = "#categoryId", sync = true)
+    public List<SetmealVO> listByCategoryId(Long categoryId) {
+        List<Setmeal> setmeals = setmealMapper.listByCategoryId(categoryId, StatusConstant.ENABLE);
+        if (setmeals.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 分类名称直接查询数据库，写入共享的二级缓存的数据不依赖本实例可能过期的分类缓存
+        Category category = categoryMapper.getById(categoryId);
+        // 一条 IN 查询取出全部套餐菜品，再按套餐分组
+        List<Long> setmealIds = setmeals.stream().map(Setmeal::getId).collect(Collectors.toList());
+        Map<Long, List<SetmealDish>> setmealDishes = setmealDishMapper.listBySetmealIds(setmealIds).stream()
+                .collect(Collectors.groupingBy(SetmealDish::getSetmealId));
+        List<SetmealVO> setmealVOs = new ArrayList<>(setmeals.size());
+        for (Setmeal setmeal : setmeals) {
+            SetmealVO setmealVO = new SetmealVO();
+            BeanUtils.copyProperties(setmeal, setmealVO);
+            if (category != null) {
+                setmealVO.setCategoryName(category.getName());
+            }
+            setmealVO.setSetmealDishes(setmealDishes.getOrDefault(setmeal.getId(), new ArrayList<>()));
+            setmealVOs.add(setmealVO);
+        }
+        return setmealVOs;
+    }
+
+    /**
+     * 批量起售、停售套餐
+     * 起售前用一条关联查询找出整批中包含停售菜品的套餐，有任何一个时整批都不起售；
+     * 起售的 UPDATE 自身也带有同样的条件，校验之后菜品被并发停售时不会起售包含它的套餐；
+     * 整批中有不存在的套餐时单独提示套餐不存在
+     * @param status
+     * @param ids
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void startOrStop(Integer status, List<Long> ids) {
+        if (!StatusConstant.ENABLE.equals(status) && !StatusConstant.DISABLE.equals(status)) {
+            throw new InvalidStatusException(MessageConstant.STATUS_INVALID);
+        }
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Long userId = BaseContext.getCurrentId();
+        if (StatusConstant.ENABLE.equals(status)) {
+            int size = new HashSet<>(ids).size();
+            if (setmealMapper.countByIds(ids) < size) {
+                throw new SetmealNotFoundException(MessageConstant.SETMEAL_NOT_FOUND);
+            }
+            List<Long> failed = setmealDishMapper.listSetmealIdsContainingDishStatus(ids, StatusConstant.DISABLE);
+            if (!failed.isEmpty()) {
+                log.info("套餐包含停售菜品, 无法起售: {}", failed);
+                throw new SetmealEnableFailedException(MessageConstant.SETMEAL_ENABLE_FAILED);
+            }
+            // 校验之后有菜品被并发停售或套餐被并发删除，事务回滚，整批都不起售
+            if (setmealMapper.enableByIds(ids, now, userId) < size) {
+                if (setmealMapper.countByIds(ids) < size) {
+                    throw new SetmealNotFoundException(MessageConstant.SETMEAL_NOT_FOUND);
+                }
+                throw new SetmealEnableFailedException(MessageConstant.SETMEAL_ENABLE_FAILED);
+            }
+        } else {
+            setmealMapper.disableByIds(ids, now, userId);
+        }
+        evictCategories(setmealMapper.listCategoryIdsByIds(ids));
+    }
+
+    /**
+     * 批量删除套餐
+     * 起售中的校验用一条 IN 查询对整批套餐完成，任意一个起售中时整批都不删除
+     * @param ids
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteBatch(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        if (setmealMapper.countByIdsAndStatus(ids, StatusConstant.ENABLE) > 0) {
+            throw new DeletionNotAllowedException(MessageConstant.SETMEAL_ON_SALE);
+        }
+        List<Long> categoryIds = setmealMapper.listCategoryIdsByIds(ids);
+        setmealMapper.deleteByIds(ids);
+        setmealDishMapper.deleteBySetmealIds(ids);
+        evictCategories(categoryIds);
+    }
+
+    /**
+     * 删除分类下的套餐缓存，在事务中调用时提交后才删除
+     */
+    private void evictCategories(List<Long> categoryIds) {
+        Cache cache = cacheManager.getCache(CacheConstant.SETMEAL_BY_CATEGORY);
+        categoryIds.forEach(cache::evict);
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.sky.service.impl;
+
+import com.sky.cart.CartStore;
+import com.sky.constant.MessageConstant;
+import com.sky.constant.StatusConstant;
+import com.sky.context.BaseContext;
+import com.sky.dto.ShoppingCartDTO;
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.entity.ShoppingCart;
+import com.sky.exception.ShoppingCartBusinessException;
+import com.sky.mapper.DishMapper;
+import com.sky.mapper.SetmealMapper;
+import com.sky.mapper.ShoppingCartMapper;
+import com.sky.service.ShoppingCartService;
+import com.sky.task.ShoppingCartWriteBehindTask;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 购物车保存在 CartStore(默认Redis)中，加购、减购都是一次原子的数量修改，不访问数据库；
+ * 只有商品第一次加入时查询一次菜品或套餐信息，停售的菜品、套餐不能加入。
+ * 开启写回时，购物车在 CartStore 中过期或丢失后，下次访问从 MySQL 中写回的数据恢复。
+ */
+@Service
+@Slf4j
+public class ShoppingCartServiceImpl implements ShoppingCartService {
+
+    @Autowired
+    private CartStore cartStore;
+    @Autowired
+    private DishMapper dishMapper;
+    @Autowired
+    private SetmealMapper setmealMapper;
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+    // 只有开启写回时才存在
+    @Autowired(required = false)
+    private ShoppingCartWriteBehindTask shoppingCartWriteBehindTask;
+
+    @Override
+    public void add(ShoppingCartDTO shoppingCartDTO) {
+        Long userId = BaseContext.getCurrentId();
+        String itemKey = itemKey(shoppingCartDTO);
+        restoreIfAbsent(userId);
+
+        long number = cartStore.increment(userId, itemKey, 1);
+        if (number == 1) {
+            // 第一次加入，补充商品信息；商品不存在或停售时删除这个商品，
+            // 并发加购的其他请求累加的数量一起删除，不会留下没有商品信息的数量
+            ShoppingCart item;
+            try {
+                item = buildItem(shoppingCartDTO);
+            } catch (RuntimeException e) {
+                cartStore.remove(userId, itemKey);
+                throw e;
+            }
+            cartStore.putItemIfAbsent(userId, itemKey, item);
+        }
+        markDirty(userId);
+    }
+
+    @Override
+    public void sub(ShoppingCartDTO shoppingCartDTO) {
+        Long userId = BaseContext.getCurrentId();
+        restoreIfAbsent(userId);
+        cartStore.increment(userId, itemKey(shoppingCartDTO), -1);
+        markDirty(userId);
+    }
+
+    @Override
+    public List<ShoppingCart> list() {
+        Long userId = BaseContext.getCurrentId();
+        restoreIfAbsent(userId);
+        return cartStore.list(userId);
+    }
+
+    @Override
+    public void clean() {
+        Long userId = BaseContext.getCurrentId();
+        cartStore.clear(userId);
+        markDirty(userId);
+    }
+
+    @Override
+    public void removeItems(Long userId, List<ShoppingCart> items) {
+        for (ShoppingCart item : items) {
+            cartStore.increment(userId, itemKey(item.getDishId(), item.getDishFlavor(), item.getSetmealId()), -item.getNumber());
+        }
+        markDirty(userId);
+    }
+
+    @Override
+    @Transactional
+    public void flushToDatabase(Long userId) {
+        List<ShoppingCart> list = cartStore.list(userId);
+        shoppingCartMapper.deleteByUserId(userId);
+        if (!list.isEmpty()) {
+            shoppingCartMapper.insertBatch(list);
+        }
+    }
+
+    /**
+     * 开启写回时，购物车不存在(过期或丢失)就从数据库恢复；清空过的购物车仍然存在，不会被恢复
+     */
+    private void restoreIfAbsent(Long userId) {
+        // 购物车存在时只多一次存在性检查，不查询数据库
+        if (shoppingCartWriteBehindTask == null || cartStore.exists(userId)) {
+            return;
+        }
+        Map<String, ShoppingCart> items = new LinkedHashMap<>();
+        for (ShoppingCart shoppingCart : shoppingCartMapper.listByUserId(userId)) {
+            shoppingCart.setId(null);
+            items.put(itemKey(shoppingCart.getDishId(), shoppingCart.getDishFlavor(), shoppingCart.getSetmealId()), shoppingCart);
+        }
+        if (cartStore.restoreIfAbsent(userId, items)) {
+            log.info("从数据库恢复购物车, userId: {}, 商品 {} 个", userId, items.size());
+        }
+    }
+
+    private void markDirty(Long userId) {
+        if (shoppingCartWriteBehindTask != null) {
+            shoppingCartWriteBehindTask.markDirty(userId);
+        }
+    }
+
+    /**
+     * 商品标识：菜品按 菜品id+口味 区分，套餐按套餐id区分
+     */
+    private static String itemKey(ShoppingCartDTO shoppingCartDTO) {
+        return itemKey(shoppingCartDTO.getDishId(), shoppingCartDTO.getDishFlavor(), shoppingCartDTO.getSetmealId());
+    }
+
+    private static String itemKey(Long dishId, String dishFlavor, Long setmealId) {
+        if (dishId != null) {
+            return "dish:" + dishId + ":" + (dishFlavor == null ? "" : dishFlavor);
+        }
+        if (setmealId != null) {
+            return "setmeal:" + setmealId;
+        }
+        throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_ITEM_NOT_FOUND);
+    }
+
+    private ShoppingCart buildItem(ShoppingCartDTO shoppingCartDTO) {
+        ShoppingCart.ShoppingCartBuilder builder = ShoppingCart.builder().createTime(LocalDateTime.now());
+        if (shoppingCartDTO.getDishId() != null) {
+            Dish dish = dishMapper.getById(shoppingCartDTO.getDishId());
+            if (dish == null) {
+                throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_ITEM_NOT_FOUND);
+            }
+            if (!StatusConstant.ENABLE.equals(dish.getStatus())) {
+                throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_ITEM_NOT_ON_SALE);
+            }
+            return builder
+                    .dishId(dish.getId())
+                    .dishFlavor(shoppingCartDTO.getDishFlavor())
+                    .name(dish.getName())
+                    .image(dish.getImage())
+                    .amount(dish.getPrice())
+                    .build();
+        }
+
+        Setmeal setmeal = setmealMapper.getById(shoppingCartDTO.getSetmealId());
+        if (setmeal == null) {
+            throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_ITEM_NOT_FOUND);
+        }
+        if (!StatusConstant.ENABLE.equals(setmeal.getStatus())) {
+            throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_ITEM_NOT_ON_SALE);
+        }
+        return builder
+                .setmealId(setmeal.getId())
+                .name(setmeal.getName())
+                .image(setmeal.getImage())
+                .amount(setmeal.getPrice())
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package com.sky.service.impl;
+
+import com.sky.cache.ExpiringCache;
+import com.sky.constant.MessageConstant;
+import com.sky.exception.UploadFailedException;
+import com.sky.properties.StorageProperties;
+import com.sky.service.UploadService;
+import com.sky.storage.FileStorage;
+import com.sky.storage.ImageVariant;
+import com.sky.storage.ImageVariantGenerator;
+import com.sky.utils.ContentHashUtil;
+import com.sky.vo.ImageUploadVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+@Service
+@Slf4j
+public class UploadServiceImpl implements UploadService {
+    // 记住最近确认存在的文件，重复上传时不用每次都去存储查询
+    private static final long STORED_OBJECTS_TTL_MILLIS = 60 * 60 * 1000;
+    private static final int STORED_OBJECTS_MAX_SIZE = 10000;
+    // 只保留常规的扩展名，避免把任意字符带进文件名
+    private static final Pattern EXTENSION_PATTERN = Pattern.compile("\\.[A-Za-z0-9]{1,8}");
+
+    @Autowired
+    private FileStorage fileStorage;
+    @Autowired
+    private StorageProperties storageProperties;
+    @Autowired
+    private ImageVariantGenerator imageVariantGenerator;
+
+    private final ExpiringCache<String, Boolean> storedObjects = new ExpiringCache<>(STORED_OBJECTS_MAX_SIZE);
+
+    // 上传线程池，线程数和排队数都有上限，满了直接拒绝，不会无限堆积请求
+    private ThreadPoolExecutor uploadExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        uploadExecutor = new ThreadPoolExecutor(storageProperties.getUploadThreads(), storageProperties.getUploadThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(storageProperties.getUploadQueueCapacity()),
+                runnable -> new Thread(runnable, "upload-" + counter.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        uploadExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        uploadExecutor.shutdown();
+    }
+
+    @Override
+    public CompletableFuture<String> upload(MultipartFile file) {
+        try {
+            // 常见格式的图片同时生成各个尺寸，菜品、套餐只保存原图地址，读取时派生各尺寸的地址
+            return CompletableFuture.supplyAsync(() -> store(file), uploadExecutor)
+                    .thenCompose(objectName -> ImageVariant.isSupported(objectName)
+                            ? generateVariants(file, objectName).thenApply(variants -> getUrl(objectName))
+                            : CompletableFuture.completedFuture(getUrl(objectName)));
+        } catch (RejectedExecutionException e) {
+            log.warn("上传任务过多，拒绝上传: {}", file.getOriginalFilename());
+            return busy();
+        }
+    }
+
+    @Override
+    public CompletableFuture<ImageUploadVO> uploadImage(MultipartFile file) {
+        try {
+            // 原图上传完成后，在上传线程中解码一次，各尺寸交给图片线程池并行生成
+            return CompletableFuture.supplyAsync(() -> store(file), uploadExecutor)
+                    .thenCompose(objectName -> generateVariants(file, objectName).thenApply(variants -> ImageUploadVO.builder()
+                            .image(getUrl(objectName))
+                            .thumbnailImage(getUrl(variants.get(ImageVariant.THUMBNAIL)))
+                            .listImage(getUrl(variants.get(ImageVariant.LIST)))
+                            .detailImage(getUrl(variants.get(ImageVariant.DETAIL)))
+                            .build()));
+        } catch (RejectedExecutionException e) {
+            log.warn("上传任务过多，拒绝上传: {}", file.getOriginalFilename());
+            return busy();
+        }
+    }
+
+    private CompletableFuture<Map<ImageVariant, String>> generateVariants(MultipartFile file, String objectName) {
+        try (InputStream inputStream = file.getInputStream()) {
+            return imageVariantGenerator.generate(inputStream, objectName);
+        } catch (IOException e) {
+            log.error("读取上传图片失败: {}", file.getOriginalFilename(), e);
+            throw new UploadFailedException(MessageConstant.UPLOAD_FAILED);
+        }
+    }
+
+    private static <T> CompletableFuture<T> busy() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(new UploadFailedException(MessageConstant.UPLOAD_BUSY));
+        return future;
+    }
+
+    /**
+     * 按内容的SHA-256命名文件，相同内容只上传一次
+     * 直接读取请求中的文件流计算摘要和写入存储，不调用 getBytes 复制整个文件
+     *
+     * @return 文件名
+     */
+    private String store(MultipartFile file) {
+        String objectName;
+        try (InputStream inputStream = file.getInputStream()) {
+            objectName = ContentHashUtil.sha256Hex(inputStream) + getExtension(file.getOriginalFilename());
+        } catch (IOException e) {
+            log.error("读取上传文件失败: {}", file.getOriginalFilename(), e);
+            throw new UploadFailedException(MessageConstant.UPLOAD_FAILED);
+        }
+
+        if (storedObjects.get(objectName) != null || fileStorage.exists(objectName)) {
+            log.info("相同内容的文件已存在，跳过上传: {}", objectName);
+        } else {
+            try (InputStream inputStream = file.getInputStream()) {
+                fileStorage.store(inputStream, file.getSize(), objectName);
+            } catch (IOException e) {
+                log.error("读取上传文件失败: {}", file.getOriginalFilename(), e);
+                throw new UploadFailedException(MessageConstant.UPLOAD_FAILED);
+            }
+        }
+        storedObjects.put(objectName, Boolean.TRUE, System.currentTimeMillis() + STORED_OBJECTS_TTL_MILLIS);
+        return objectName;
+    }
+
+    private String getUrl(String objectName) {
+        // 始终返回存储的原始地址，保存到数据库后不依赖图片缓存是否开启；用户端读取时再改写成代理地址
+        return fileStorage.getUrl(objectName);
+    }
+
+    /**
+     * 原始文件的扩展名(小写)，没有扩展名时返回空串
+     */
+    private static String getExtension(String originalFilename) {
+        if (originalFilename == null) {
+            return "";
+        }
+        int index = originalFilename.lastIndexOf(".");
+        if (index < 0 || !EXTENSION_PATTERN.matcher(originalFilename.substring(index)).matches()) {
+            return "";
+        }
+        return originalFilename.substring(index).toLowerCase();
+    }
+}
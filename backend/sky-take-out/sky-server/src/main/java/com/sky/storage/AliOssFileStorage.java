@@ -0,0 +1,48 @@
+package com.sky.storage;
+
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import com.sky.utils.AliOssUtil;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 保存到阿里云OSS
+ */
+public class AliOssFileStorage implements FileStorage {
+
+    private final AliOssUtil aliOssUtil;
+
+    public AliOssFileStorage(AliOssUtil aliOssUtil) {
+        this.aliOssUtil = aliOssUtil;
+    }
+
+    @Override
+    public String store(InputStream inputStream, long size, String objectName) {
+        return aliOssUtil.upload(inputStream, size, objectName);
+    }
+
+    @Override
+    public boolean exists(String objectName) {
+        return aliOssUtil.exists(objectName);
+    }
+
+    @Override
+    public InputStream open(String objectName) throws IOException {
+        try {
+            return aliOssUtil.download(objectName);
+        } catch (OSSException e) {
+            if (OSSErrorCode.NO_SUCH_KEY.equals(e.getErrorCode())) {
+                throw new FileNotFoundException(objectName);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public String getUrl(String objectName) {
+        return aliOssUtil.getUrl(objectName);
+    }
+}
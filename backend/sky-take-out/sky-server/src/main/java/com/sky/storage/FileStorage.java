@@ -0,0 +1,45 @@
+package com.sky.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 文件存储，按 sky.storage.type 选择阿里云OSS或本地目录
+ */
+public interface FileStorage {
+
+    /**
+     * 保存文件，失败时抛出 UploadFailedException
+     *
+     * @param inputStream 文件内容，由调用方关闭
+     * @param size        文件大小
+     * @param objectName  文件名
+     * @return 文件访问路径
+     */
+    String store(InputStream inputStream, long size, String objectName);
+
+    /**
+     * 文件是否已经存在
+     *
+     * @param objectName
+     * @return
+     */
+    boolean exists(String objectName);
+
+    /**
+     * 读取文件，返回的输入流由调用方关闭
+     *
+     * @param objectName
+     * @return
+     */
+    InputStream open(String objectName) throws IOException;
+
+    /**
+     * 文件访问路径
+     *
+     * @param objectName
+     * @return
+     */
+    String getUrl(String objectName);
+
+}
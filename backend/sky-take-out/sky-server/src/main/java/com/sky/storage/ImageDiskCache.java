@@ -0,0 +1,149 @@
+package com.sky.storage;
+
+import com.sky.properties.StorageProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 图片本地缓存
+ * 文件按内容命名，内容不会变化，所以第一次访问时从存储下载到本地磁盘后可以一直使用；
+ * 常用的图片以内存映射的方式保留，总大小超过上限时按最近最少使用移出，文件仍保留在磁盘上。
+ * 移出只是不再持有映射的引用，映射本身在没有引用后由GC回收时才解除，
+ * 正在写出响应的请求可能还在读取同一个映射，所以不主动解除。
+ */
+@Component
+@Slf4j
+public class ImageDiskCache {
+
+    // 只接受上传时生成的文件名：SHA-256 + 可选的尺寸后缀 + 可选的扩展名
+    private static final Pattern NAME_PATTERN = Pattern.compile("[0-9a-f]{64}(-[a-z]{1,16})?(\\.[a-z0-9]{1,8})?");
+    // 同一文件的并发回源只下载一次
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired
+    private FileStorage fileStorage;
+    @Autowired
+    private StorageProperties storageProperties;
+
+    private Path dir;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    // 按访问顺序排列的内存映射，最久未访问的在最前面
+    private final LinkedHashMap<String, MappedByteBuffer> mapped = new LinkedHashMap<>(16, 0.75f, true);
+    private long mappedBytes;
+
+    @PostConstruct
+    public void init() {
+        dir = Paths.get(storageProperties.getImageCacheDir()).toAbsolutePath().normalize();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public boolean isEnabled() {
+        return storageProperties.isImageCacheEnabled();
+    }
+
+    /**
+     * 是否是合法的缓存文件名
+     *
+     * @param name
+     * @return
+     */
+    public boolean isValidName(String name) {
+        return name != null && NAME_PATTERN.matcher(name).matches();
+    }
+
+    /**
+     * 获取图片内容，本地没有时从存储下载
+     *
+     * @param name
+     * @return 只读的内容，每次调用返回独立的position；存储中也不存在时返回null
+     */
+    public ByteBuffer get(String name) throws IOException {
+        ByteBuffer buffer = getMapped(name);
+        if (buffer != null) {
+            return buffer;
+        }
+
+        synchronized (locks[(name.hashCode() & 0x7fffffff) % LOCK_STRIPES]) {
+            buffer = getMapped(name);
+            if (buffer != null) {
+                return buffer;
+            }
+            Path file = dir.resolve(name);
+            if (!Files.exists(file) && !download(name, file)) {
+                return null;
+            }
+            return map(name, file);
+        }
+    }
+
+    private ByteBuffer getMapped(String name) {
+        synchronized (mapped) {
+            MappedByteBuffer buffer = mapped.get(name);
+            return buffer == null ? null : buffer.asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * 从存储下载到临时文件，完成后改名，其他线程不会读到写了一半的文件
+     */
+    private boolean download(String name, Path file) throws IOException {
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, ".download-", ".tmp");
+        try (InputStream inputStream = fileStorage.open(name)) {
+            Files.copy(inputStream, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("图片缓存到本地: {}", name);
+            return true;
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            return false;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private ByteBuffer map(String name, Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        synchronized (mapped) {
+            MappedByteBuffer old = mapped.put(name, buffer);
+            if (old != null) {
+                mappedBytes -= old.capacity();
+            }
+            mappedBytes += buffer.capacity();
+
+            // 超过上限时移出最久未访问的映射，刚加入的那个保留
+            Iterator<Map.Entry<String, MappedByteBuffer>> iterator = mapped.entrySet().iterator();
+            while (mappedBytes > storageProperties.getImageCacheMaxMappedBytes() && mapped.size() > 1) {
+                Map.Entry<String, MappedByteBuffer> eldest = iterator.next();
+                mappedBytes -= eldest.getValue().capacity();
+                iterator.remove();
+            }
+        }
+        return buffer.asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,87 @@
+package com.sky.storage;
+
+import com.sky.properties.StorageProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 图片地址转换
+ * 数据库中保存的始终是存储的原始地址，开启图片缓存时在返回给用户端之前改写成代理地址，
+ * 关闭图片缓存后已保存的地址仍然可以直接访问。
+ * 缩略图等尺寸的文件名由原图文件名确定，不单独保存，读取时由原图地址派生。
+ */
+@Component
+public class ImageUrlResolver {
+
+    @Autowired
+    private FileStorage fileStorage;
+    @Autowired
+    private ImageDiskCache imageDiskCache;
+    @Autowired
+    private StorageProperties storageProperties;
+
+    /**
+     * 保存前转换成存储的原始地址，代理地址会被还原
+     *
+     * @param url
+     * @return
+     */
+    public String toStoredUrl(String url) {
+        String name = getObjectName(url);
+        return name == null ? url : fileStorage.getUrl(name);
+    }
+
+    /**
+     * 返回给用户端的地址，开启图片缓存时是代理地址，否则是存储的原始地址
+     * 不是上传生成的地址(例如外部图片)原样返回
+     *
+     * @param url
+     * @return
+     */
+    public String toServingUrl(String url) {
+        String name = getObjectName(url);
+        if (name == null) {
+            return url;
+        }
+        if (imageDiskCache.isEnabled()) {
+            return storageProperties.getImageCacheUrlPrefix() + name;
+        }
+        return fileStorage.getUrl(name);
+    }
+
+    /**
+     * 返回给用户端的某个尺寸的地址，原图不是上传时生成了各尺寸的图片时返回null
+     *
+     * @param url     原图地址
+     * @param variant
+     * @return
+     */
+    public String toServingUrl(String url, ImageVariant variant) {
+        String name = getObjectName(url);
+        if (!ImageVariant.isSupported(name)) {
+            return null;
+        }
+        String variantName = variant.nameOf(name);
+        if (imageDiskCache.isEnabled()) {
+            return storageProperties.getImageCacheUrlPrefix() + variantName;
+        }
+        return fileStorage.getUrl(variantName);
+    }
+
+    /**
+     * 从原始地址或代理地址中取出上传时生成的文件名，不是上传生成的地址时返回null
+     */
+    private String getObjectName(String url) {
+        if (url == null) {
+            return null;
+        }
+        String name = url.substring(url.lastIndexOf('/') + 1);
+        if (!imageDiskCache.isValidName(name)) {
+            return null;
+        }
+        if (url.equals(storageProperties.getImageCacheUrlPrefix() + name) || url.equals(fileStorage.getUrl(name))) {
+            return name;
+        }
+        return null;
+    }
+}
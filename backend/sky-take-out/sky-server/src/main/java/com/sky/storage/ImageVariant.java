@@ -0,0 +1,64 @@
+package com.sky.storage;
+
+import java.util.regex.Pattern;
+
+/**
+ * 上传图片时生成的尺寸，按宽度等比缩放，原图不超过这个宽度时按原图大小生成
+ * 每个尺寸都会生成，文件名由原图文件名确定，所以只保存原图地址就能得到各尺寸的地址
+ */
+public enum ImageVariant {
+
+    THUMBNAIL("thumbnail", 120),
+    LIST("list", 360),
+    DETAIL("detail", 750);
+
+    // 能解码并生成各尺寸的原图文件名：SHA-256 + 常见图片扩展名
+    private static final Pattern SOURCE_NAME_PATTERN = Pattern.compile("[0-9a-f]{64}\\.(jpg|jpeg|png|gif|bmp)");
+
+    private final String suffix;
+    private final int width;
+
+    ImageVariant(String suffix, int width) {
+        this.suffix = suffix;
+        this.width = width;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * 原图是否会生成各个尺寸
+     *
+     * @param objectName 原图文件名
+     * @return
+     */
+    public static boolean isSupported(String objectName) {
+        return objectName != null && SOURCE_NAME_PATTERN.matcher(objectName).matches();
+    }
+
+    /**
+     * 各尺寸的编码格式，png、gif 可能带透明通道，用png，其余用jpg
+     *
+     * @param objectName 原图文件名
+     * @return
+     */
+    public static String formatOf(String objectName) {
+        return objectName.endsWith(".png") || objectName.endsWith(".gif") ? "png" : "jpg";
+    }
+
+    /**
+     * 这个尺寸的文件名：原图摘要-尺寸.格式
+     *
+     * @param objectName 原图文件名
+     * @return
+     */
+    public String nameOf(String objectName) {
+        String baseName = objectName.contains(".") ? objectName.substring(0, objectName.indexOf('.')) : objectName;
+        return baseName + "-" + suffix + "." + formatOf(objectName);
+    }
+}
@@ -0,0 +1,179 @@
+package com.sky.storage;
+
+import com.sky.constant.MessageConstant;
+import com.sky.exception.UploadFailedException;
+import com.sky.properties.StorageProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按原图生成缩略图、列表图、详情图并保存到文件存储
+ * 原图只解码一次，各个尺寸在有界的线程池中并行缩放、编码和上传
+ */
+@Component
+@Slf4j
+public class ImageVariantGenerator {
+
+    @Autowired
+    private FileStorage fileStorage;
+    @Autowired
+    private StorageProperties storageProperties;
+
+    private ThreadPoolExecutor imageExecutor;
+
+    @PostConstruct
+    public void init() {
+        // 图片在内存中处理，不需要ImageIO的磁盘缓存
+        ImageIO.setUseCache(false);
+        AtomicInteger counter = new AtomicInteger();
+        imageExecutor = new ThreadPoolExecutor(storageProperties.getImageThreads(), storageProperties.getImageThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(storageProperties.getImageQueueCapacity()),
+                runnable -> new Thread(runnable, "image-" + counter.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        imageExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        imageExecutor.shutdown();
+    }
+
+    /**
+     * 生成各个尺寸
+     *
+     * @param inputStream 原图内容，由调用方关闭
+     * @param objectName  原图的文件名(内容摘要 + 扩展名)，各尺寸的文件名由它派生
+     * @return 各尺寸的文件名，由原图文件名确定，见 ImageVariant#nameOf
+     */
+    public CompletableFuture<Map<ImageVariant, String>> generate(InputStream inputStream, String objectName) throws IOException {
+        BufferedImage original = read(inputStream);
+
+        // 格式由原图扩展名决定，读取菜单时只凭原图地址就能得到各尺寸的地址
+        String format = ImageVariant.formatOf(objectName);
+
+        Map<ImageVariant, String> result = new EnumMap<>(ImageVariant.class);
+        Map<ImageVariant, CompletableFuture<String>> futures = new EnumMap<>(ImageVariant.class);
+        for (ImageVariant variant : ImageVariant.values()) {
+            String variantName = variant.nameOf(objectName);
+            try {
+                futures.put(variant, CompletableFuture.supplyAsync(() -> store(original, variant, format, variantName), imageExecutor));
+            } catch (RejectedExecutionException e) {
+                log.warn("图片处理任务过多，拒绝生成: {}", variantName);
+                futures.values().forEach(future -> future.cancel(false));
+                CompletableFuture<Map<ImageVariant, String>> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new UploadFailedException(MessageConstant.UPLOAD_BUSY));
+                return failed;
+            }
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            futures.forEach((variant, future) -> result.put(variant, future.join()));
+            return result;
+        });
+    }
+
+    /**
+     * 解码图片，先从图片头读取宽高，超过限制时直接拒绝，不为其分配像素内存
+     */
+    private BufferedImage read(InputStream inputStream) throws IOException {
+        ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream);
+        if (imageInputStream == null) {
+            throw new UploadFailedException(MessageConstant.IMAGE_FORMAT_NOT_SUPPORTED);
+        }
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                throw new UploadFailedException(MessageConstant.IMAGE_FORMAT_NOT_SUPPORTED);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width <= 0 || height <= 0
+                        || width > storageProperties.getImageMaxDimension() || height > storageProperties.getImageMaxDimension()
+                        || (long) width * height > storageProperties.getImageMaxPixels()) {
+                    log.warn("图片尺寸超过限制: {}x{}", width, height);
+                    throw new UploadFailedException(MessageConstant.IMAGE_TOO_LARGE);
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            imageInputStream.close();
+        }
+    }
+
+    /**
+     * 缩放、编码并保存一个尺寸，文件名由原图摘要决定，已经存在时不再生成
+     */
+    private String store(BufferedImage original, ImageVariant variant, String format, String variantName) {
+        if (fileStorage.exists(variantName)) {
+            return variantName;
+        }
+
+        // 原图不超过这个宽度时按原图大小重新编码，不放大
+        BufferedImage scaled = scale(original, Math.min(variant.getWidth(), original.getWidth()), "png".equals(format));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(scaled, format, out);
+        } catch (IOException e) {
+            log.error("图片编码失败: {}", variantName, e);
+            throw new UploadFailedException(MessageConstant.UPLOAD_FAILED);
+        }
+        fileStorage.store(new ByteArrayInputStream(out.toByteArray()), out.size(), variantName);
+        return variantName;
+    }
+
+    /**
+     * 等比缩放到指定宽度，缩小超过一半时逐次减半，避免一次缩放丢失细节
+     */
+    private static BufferedImage scale(BufferedImage original, int targetWidth, boolean alpha) {
+        int targetHeight = Math.max(1, (int) Math.round((double) original.getHeight() * targetWidth / original.getWidth()));
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = original;
+        int width = original.getWidth();
+        int height = original.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = width == targetWidth ? targetHeight : Math.max(targetHeight, height / 2);
+
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth);
+        return current;
+    }
+}
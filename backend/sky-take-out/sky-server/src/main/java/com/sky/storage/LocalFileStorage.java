@@ -0,0 +1,86 @@
+package com.sky.storage;
+
+import com.sky.constant.MessageConstant;
+import com.sky.exception.UploadFailedException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 保存到本地目录，用于开发和测试时替代OSS
+ * 先写入同目录下的临时文件再改名，读取方不会看到写了一半的文件
+ */
+@Slf4j
+public class LocalFileStorage implements FileStorage {
+
+    private final Path dir;
+    private final String urlPrefix;
+
+    public LocalFileStorage(String dir, String urlPrefix) {
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        this.urlPrefix = urlPrefix;
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    @Override
+    public String store(InputStream inputStream, long size, String objectName) {
+        Path target = dir.resolve(objectName).normalize();
+        if (!target.startsWith(dir)) {
+            throw new UploadFailedException(MessageConstant.UPLOAD_FAILED);
+        }
+
+        Path temp = null;
+        try {
+            Files.createDirectories(target.getParent());
+            temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+            Files.copy(inputStream, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("文件保存到本地失败, objectName: {}", objectName, e);
+            deleteQuietly(temp);
+            throw new UploadFailedException(MessageConstant.UPLOAD_FAILED);
+        }
+
+        log.info("文件上传到:{}", target);
+        return getUrl(objectName);
+    }
+
+    @Override
+    public boolean exists(String objectName) {
+        Path target = dir.resolve(objectName).normalize();
+        return target.startsWith(dir) && Files.exists(target);
+    }
+
+    @Override
+    public InputStream open(String objectName) throws IOException {
+        Path target = dir.resolve(objectName).normalize();
+        if (!target.startsWith(dir)) {
+            throw new FileNotFoundException(objectName);
+        }
+        return Files.newInputStream(target);
+    }
+
+    @Override
+    public String getUrl(String objectName) {
+        return urlPrefix + objectName;
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+}
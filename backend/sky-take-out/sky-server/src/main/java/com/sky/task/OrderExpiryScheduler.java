@@ -0,0 +1,181 @@
+package com.sky.task;
+
+import com.sky.constant.MessageConstant;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.order.OrderEvent;
+import com.sky.order.OrderStateMachine;
+import com.sky.properties.OrderExpiryProperties;
+import com.sky.utils.HierarchicalTimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 订单定时处理：超时未支付自动取消，超过预计送达时间仍在派送中自动完成
+ * 每个订单在下单(或开始派送)时放入时间轮，到期时同一批订单用一条 UPDATE 语句批量修改，
+ * 不需要定期扫描整张订单表；启动时从数据库恢复还没处理的订单。
+ * UPDATE 带有当前状态条件，订单已经支付或被其他实例处理过时不会被误改，所以多实例部署时各自恢复也没有问题。
+ */
+@Component
+@Slf4j
+public class OrderExpiryScheduler {
+
+    // 批量修改失败时，隔这么久后重试
+    private static final long RETRY_DELAY_MILLIS = 10 * 1000;
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private OrderExpiryProperties orderExpiryProperties;
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+
+    private HierarchicalTimingWheel<Long> paymentWheel;
+    private HierarchicalTimingWheel<Long> deliveryWheel;
+    private final Map<Long, HierarchicalTimingWheel.Timeout<Long>> paymentTimeouts = new ConcurrentHashMap<>();
+    private final Map<Long, HierarchicalTimingWheel.Timeout<Long>> deliveryTimeouts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        paymentWheel = new HierarchicalTimingWheel<>(orderExpiryProperties.getTickMillis(), orderExpiryProperties.getWheelSize(),
+                "order-payment-timeout", this::cancelTimeoutOrders);
+        deliveryWheel = new HierarchicalTimingWheel<>(orderExpiryProperties.getTickMillis(), orderExpiryProperties.getWheelSize(),
+                "order-delivery-timeout", this::completeDeliveryOrders);
+        recover();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        paymentWheel.shutdown();
+        deliveryWheel.shutdown();
+    }
+
+    /**
+     * 下单后登记支付超时
+     * @param orderId
+     * @param orderTime
+     */
+    public void schedulePaymentTimeout(Long orderId, LocalDateTime orderTime) {
+        long expireAt = toMillis(orderTime) + orderExpiryProperties.getPaymentTimeoutMinutes() * 60 * 1000;
+        paymentTimeouts.put(orderId, paymentWheel.schedule(orderId, expireAt));
+    }
+
+    /**
+     * 订单已支付或已取消，撤销支付超时
+     * @param orderId
+     */
+    public void cancelPaymentTimeout(Long orderId) {
+        HierarchicalTimingWheel.Timeout<Long> timeout = paymentTimeouts.remove(orderId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * 开始派送后登记自动完成
+     * @param orderId
+     * @param estimatedDeliveryTime 预计送达时间，为空时按当前时间计算
+     */
+    public void scheduleDeliveryCompletion(Long orderId, LocalDateTime estimatedDeliveryTime) {
+        LocalDateTime base = estimatedDeliveryTime != null ? estimatedDeliveryTime : LocalDateTime.now();
+        long expireAt = toMillis(base) + orderExpiryProperties.getDeliveryCompleteMinutes() * 60 * 1000;
+        deliveryTimeouts.put(orderId, deliveryWheel.schedule(orderId, expireAt));
+    }
+
+    /**
+     * 订单已送达，撤销自动完成
+     * @param orderId
+     */
+    public void cancelDeliveryCompletion(Long orderId) {
+        HierarchicalTimingWheel.Timeout<Long> timeout = deliveryTimeouts.remove(orderId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    public int getPendingPaymentCount() {
+        return paymentWheel.size();
+    }
+
+    public int getPendingDeliveryCount() {
+        return deliveryWheel.size();
+    }
+
+    /**
+     * 从数据库恢复待支付和派送中的订单，已经超时的会在下一格立即处理
+     */
+    private void recover() {
+        int payment = recover(Orders.PENDING_PAYMENT, orders -> schedulePaymentTimeout(orders.getId(), orders.getOrderTime()));
+        int delivery = recover(Orders.DELIVERY_IN_PROGRESS, orders -> scheduleDeliveryCompletion(orders.getId(),
+                orders.getEstimatedDeliveryTime() != null ? orders.getEstimatedDeliveryTime() : orders.getOrderTime()));
+        log.info("恢复订单定时任务: 待支付 {} 个, 派送中 {} 个", payment, delivery);
+    }
+
+    private int recover(Integer status, Consumer<Orders> scheduler) {
+        int count = 0;
+        long afterId = 0;
+        while (true) {
+            List<Orders> page = orderMapper.listTimesByStatus(status, afterId, orderExpiryProperties.getRecoveryPageSize());
+            for (Orders orders : page) {
+                scheduler.accept(orders);
+            }
+            count += page.size();
+            if (page.size() < orderExpiryProperties.getRecoveryPageSize()) {
+                return count;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    private void cancelTimeoutOrders(List<Long> orderIds) {
+        orderIds.forEach(paymentTimeouts::remove);
+        Orders changes = Orders.builder()
+                .cancelReason(MessageConstant.ORDER_PAYMENT_TIMEOUT)
+                .cancelTime(LocalDateTime.now())
+                .build();
+        int updated = updateInBatches(orderIds, OrderEvent.PAYMENT_TIMEOUT, changes, paymentWheel);
+        log.info("超时未支付订单自动取消: 到期 {} 个, 取消 {} 个", orderIds.size(), updated);
+    }
+
+    private void completeDeliveryOrders(List<Long> orderIds) {
+        orderIds.forEach(deliveryTimeouts::remove);
+        Orders changes = Orders.builder()
+                .deliveryTime(LocalDateTime.now())
+                .build();
+        int updated = updateInBatches(orderIds, OrderEvent.DELIVERY_TIMEOUT, changes, deliveryWheel);
+        log.info("派送中订单自动完成: 到期 {} 个, 完成 {} 个", orderIds.size(), updated);
+    }
+
+    /**
+     * 每 batchSize 个订单一条 UPDATE；某一批失败时放回时间轮稍后重试，不影响其他批
+     */
+    private int updateInBatches(List<Long> orderIds, OrderEvent event, Orders changes, HierarchicalTimingWheel<Long> wheel) {
+        int updated = 0;
+        int batchSize = orderExpiryProperties.getBatchSize();
+        for (int from = 0; from < orderIds.size(); from += batchSize) {
+            List<Long> batch = orderIds.subList(from, Math.min(from + batchSize, orderIds.size()));
+            try {
+                updated += orderStateMachine.fireBatch(batch, event, changes);
+            } catch (Exception e) {
+                log.error("批量修改订单状态失败，稍后重试, 订单数: {}", batch.size(), e);
+                long retryAt = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+                batch.forEach(orderId -> wheel.schedule(orderId, retryAt));
+            }
+        }
+        return updated;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
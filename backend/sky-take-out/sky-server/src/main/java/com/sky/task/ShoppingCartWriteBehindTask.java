@@ -0,0 +1,52 @@
+package com.sky.task;
+
+import com.sky.service.ShoppingCartService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 购物车写回：记录修改过购物车的用户，定期把这些用户的购物车写回 MySQL
+ * 同一个用户在一个周期内修改多次只写一次
+ */
+@Component
+@ConditionalOnProperty(prefix = "sky.shopping-cart", name = "write-behind-enabled", havingValue = "true")
+@Slf4j
+public class ShoppingCartWriteBehindTask {
+
+    @Autowired
+    private ShoppingCartService shoppingCartService;
+
+    private final Set<Long> dirtyUserIds = ConcurrentHashMap.newKeySet();
+
+    public void markDirty(Long userId) {
+        dirtyUserIds.add(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${sky.shopping-cart.write-behind-interval-millis:5000}")
+    public void flush() {
+        int count = 0;
+        Iterator<Long> iterator = dirtyUserIds.iterator();
+        while (iterator.hasNext()) {
+            Long userId = iterator.next();
+            // 先移除再写，写的过程中再次修改的会在下个周期写回
+            iterator.remove();
+            try {
+                shoppingCartService.flushToDatabase(userId);
+                count++;
+            } catch (Exception e) {
+                log.error("购物车写回数据库失败, userId: {}", userId, e);
+                dirtyUserIds.add(userId);
+            }
+        }
+        if (count > 0) {
+            log.info("购物车写回数据库: {} 个用户", count);
+        }
+    }
+}